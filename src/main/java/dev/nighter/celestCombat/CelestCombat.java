@@ -4,17 +4,24 @@ import com.sk89q.worldguard.WorldGuard;
 import dev.nighter.celestCombat.combat.CombatManager;
 import dev.nighter.celestCombat.combat.DeathAnimationManager;
 import dev.nighter.celestCombat.commands.CommandManager;
+import dev.nighter.celestCombat.configs.CelestConfig;
 import dev.nighter.celestCombat.configs.TimeFormatter;
+import dev.nighter.celestCombat.configs.WorldPolicyTable;
 import dev.nighter.celestCombat.language.LanguageManager;
 import dev.nighter.celestCombat.language.MessageService;
 import dev.nighter.celestCombat.listeners.CombatListeners;
 import dev.nighter.celestCombat.listeners.EnderPearlListener;
+import dev.nighter.celestCombat.hooks.protection.BarrierEngine;
+import dev.nighter.celestCombat.hooks.protection.BarrierWorker;
+import dev.nighter.celestCombat.hooks.protection.BuiltinSafezoneProvider;
 import dev.nighter.celestCombat.hooks.protection.WorldGuardHook;
 import dev.nighter.celestCombat.hooks.protection.GriefPreventionHook;
 import dev.nighter.celestCombat.listeners.ItemRestrictionListener;
+import dev.nighter.celestCombat.listeners.MoveDispatcher;
 import dev.nighter.celestCombat.listeners.TridentListener;
 import dev.nighter.celestCombat.protection.NewbieProtectionManager;
 import dev.nighter.celestCombat.rewards.KillRewardManager;
+import dev.nighter.celestCombat.session.SessionManager;
 import dev.nighter.celestCombat.updates.ConfigUpdater;
 import dev.nighter.celestCombat.updates.LanguageUpdater;
 import dev.nighter.celestCombat.updates.UpdateChecker;
@@ -30,7 +37,10 @@ public final class CelestCombat extends JavaPlugin {
     @Getter
     private static CelestCombat instance;
     private final boolean debugMode = getConfig().getBoolean("debug", false);
+    private volatile CelestConfig celestConfig;
     private LanguageManager languageManager;
+    private WorldPolicyTable worldPolicyTable;
+    private SessionManager sessionManager;
     private MessageService messageService;
     private UpdateChecker updateChecker;
     private ConfigUpdater configUpdater;
@@ -42,8 +52,14 @@ public final class CelestCombat extends JavaPlugin {
     private CombatListeners combatListeners;
     private EnderPearlListener enderPearlListener;
     private TridentListener tridentListener;
+    private ItemRestrictionListener itemRestrictionListener;
+    private MoveDispatcher moveDispatcher;
     private DeathAnimationManager deathAnimationManager;
     private NewbieProtectionManager newbieProtectionManager;
+    private BarrierWorker barrierWorker;
+    private BarrierEngine barrierEngine;
+    private BuiltinSafezoneProvider builtinSafezones;
+    private boolean barrierEngineRegistered;
     private WorldGuardHook worldGuardHook;
     private GriefPreventionHook griefPreventionHook;
 
@@ -62,11 +78,18 @@ public final class CelestCombat extends JavaPlugin {
         languageUpdater = new LanguageUpdater(this, LanguageUpdater.LanguageFileType.MESSAGES);
         languageUpdater.checkAndUpdateLanguageFiles();
 
-        messageService = new MessageService(this, languageManager);
+        worldPolicyTable = new WorldPolicyTable(this);
+        getServer().getPluginManager().registerEvents(worldPolicyTable, this);
+
+        sessionManager = new SessionManager(this);
+        getServer().getPluginManager().registerEvents(sessionManager, this);
+
+        messageService = new MessageService(this, languageManager, sessionManager);
         updateChecker = new UpdateChecker(this);
         configUpdater = new ConfigUpdater(this);
         configUpdater.checkAndUpdateConfig();
         timeFormatter = new TimeFormatter(this);
+        celestConfig = CelestConfig.load(getConfig());
 
         deathAnimationManager = new DeathAnimationManager(this);
         combatManager = new CombatManager(this);
@@ -81,23 +104,20 @@ public final class CelestCombat extends JavaPlugin {
         tridentListener = new TridentListener(this, combatManager);
         getServer().getPluginManager().registerEvents(tridentListener, this);
 
-        getServer().getPluginManager().registerEvents(new ItemRestrictionListener(this, combatManager), this);
+        itemRestrictionListener = new ItemRestrictionListener(this, combatManager);
+        getServer().getPluginManager().registerEvents(itemRestrictionListener, this);
 
-        // WorldGuard integration
-        if (hasWorldGuard && getConfig().getBoolean("safezone_protection.enabled", true)) {
-            worldGuardHook = new WorldGuardHook(this, combatManager);
-            getServer().getPluginManager().registerEvents(worldGuardHook, this);
-            debug("WorldGuard safezone protection enabled");
-        } else if(hasWorldGuard) {
+        moveDispatcher = new MoveDispatcher(this, combatManager);
+        getServer().getPluginManager().registerEvents(moveDispatcher, this);
+
+        barrierWorker = new BarrierWorker(this);
+        barrierEngine = new BarrierEngine(this, combatManager);
+
+        enableProtection();
+        if (worldGuardHook == null && hasWorldGuard) {
             getLogger().info("Found WorldGuard but safe zone barrier is disabled in config.");
         }
-
-        // GriefPrevention integration
-        if (hasGriefPrevention && getConfig().getBoolean("claim_protection.enabled", true)) {
-            griefPreventionHook = new GriefPreventionHook(this, combatManager);
-            getServer().getPluginManager().registerEvents(griefPreventionHook, this);
-            debug("GriefPrevention claim protection enabled");
-        } else if(hasGriefPrevention) {
+        if (griefPreventionHook == null && hasGriefPrevention) {
             getLogger().info("Found GriefPrevention but claim protection is disabled in config.");
         }
 
@@ -126,14 +146,26 @@ public final class CelestCombat extends JavaPlugin {
             tridentListener.shutdown();
         }
 
+        if (moveDispatcher != null) {
+            moveDispatcher.shutdown();
+        }
+
+        if (barrierEngine != null) {
+            barrierEngine.cleanup();
+        }
+
         if (worldGuardHook != null) {
-            worldGuardHook.cleanup();
+            worldGuardHook.shutdown();
         }
 
         if (griefPreventionHook != null) {
             griefPreventionHook.cleanup();
         }
 
+        if (barrierWorker != null) {
+            barrierWorker.shutdown();
+        }
+
         if (killRewardManager != null) {
             killRewardManager.shutdown();
         }
@@ -142,6 +174,10 @@ public final class CelestCombat extends JavaPlugin {
             newbieProtectionManager.shutdown();
         }
 
+        if (sessionManager != null) {
+            sessionManager.shutdown();
+        }
+
         getLogger().info("CelestCombat has been disabled!");
     }
 
@@ -201,13 +237,77 @@ public final class CelestCombat extends JavaPlugin {
         }
     }
 
+    /**
+     * Creates and registers every protection provider that is enabled in the config and not running yet
+     */
+    private void enableProtection() {
+        // WorldGuard integration
+        if (worldGuardHook == null && hasWorldGuard && getConfig().getBoolean("safezone_protection.enabled", true)) {
+            worldGuardHook = new WorldGuardHook(this, combatManager);
+            getServer().getPluginManager().registerEvents(worldGuardHook, this);
+            barrierEngine.register(worldGuardHook);
+            debug("WorldGuard safezone protection enabled");
+        }
+
+        // GriefPrevention integration
+        if (griefPreventionHook == null && hasGriefPrevention && getConfig().getBoolean("claim_protection.enabled", true)) {
+            griefPreventionHook = new GriefPreventionHook(this);
+            getServer().getPluginManager().registerEvents(griefPreventionHook.getClaimIndex(), this);
+            getServer().getPluginManager().registerEvents(griefPreventionHook.getTrustCache(), this);
+            barrierEngine.register(griefPreventionHook);
+            debug("GriefPrevention claim protection enabled");
+        }
+
+        // Built-in safezones, no other plugin needed
+        if (builtinSafezones == null && getConfig().getBoolean("builtin_safezones.enabled", false)) {
+            builtinSafezones = new BuiltinSafezoneProvider(this);
+            barrierEngine.register(builtinSafezones);
+            debug("Built-in safezone protection enabled");
+        }
+
+        // One barrier engine for every protection provider
+        if (!barrierEngineRegistered && barrierEngine.hasProviders()) {
+            getServer().getPluginManager().registerEvents(barrierEngine, this);
+            moveDispatcher.register(barrierEngine);
+            barrierEngineRegistered = true;
+        }
+    }
+
+    /**
+     * Reloads the config and every component that depends on it.
+     * The new snapshot is published before any component reloads, so they all read the same values.
+     */
     public void reload() {
+        reloadConfig();
+        refreshTimeCache();
+        celestConfig = CelestConfig.load(getConfig());
+
+        languageManager.reloadLanguages();
+        worldPolicyTable.reload();
+
+        barrierEngine.cleanup();
+
         if (worldGuardHook != null) {
             worldGuardHook.cleanup();
+            worldGuardHook.reloadConfig();
         }
 
         if (griefPreventionHook != null) {
             griefPreventionHook.cleanup();
+            griefPreventionHook.reloadConfig();
+        }
+
+        if (builtinSafezones != null) {
+            builtinSafezones.reload();
         }
+
+        // Providers switched on since the last load start now, switching one off only needs its config
+        enableProtection();
+        barrierEngine.reloadConfig();
+
+        combatManager.reloadConfig();
+        killRewardManager.loadConfig();
+        newbieProtectionManager.reloadConfig();
+        combatListeners.reload();
     }
 }
\ No newline at end of file
@@ -2,61 +2,53 @@ package dev.nighter.celestCombat.combat;
 
 import dev.nighter.celestCombat.CelestCombat;
 import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.configs.WorldPolicy;
+import dev.nighter.celestCombat.configs.WorldPolicyTable;
+import dev.nighter.celestCombat.listeners.ItemRestrictionListener;
+import dev.nighter.celestCombat.session.PlayerSession;
+import dev.nighter.celestCombat.session.SessionManager;
 import lombok.Getter;
-import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class CombatManager {
     private final CelestCombat plugin;
-    @Getter private final Map<UUID, Long> playersInCombat;
-    private final Map<UUID, Scheduler.Task> combatTasks;
-    private final Map<UUID, UUID> combatOpponents;
+    private final SessionManager sessionManager;
+    private final WorldPolicyTable worldPolicies;
+    // Combat end time and opponent live on the session, this only tracks who is tagged
+    private final Set<PlayerSession> taggedSessions = ConcurrentHashMap.newKeySet();
 
     private Scheduler.Task globalCountdownTask;
     private static final long COUNTDOWN_INTERVAL = 20L;
 
-    @Getter private final Map<UUID, Long> enderPearlCooldowns;
-    @Getter private final Map<UUID, Long> tridentCooldowns = new ConcurrentHashMap<>();
+    // Combat tag expiry - only the slot that is due gets visited each countdown tick
+    private static final int EXPIRY_WHEEL_SLOTS = 64;
+    private final TimingWheel<PlayerSession> combatExpiryWheel = new TimingWheel<>(EXPIRY_WHEEL_SLOTS, COUNTDOWN_INTERVAL * 50L);
+
+    @Getter private final CooldownRegistry cooldownRegistry;
+
+    // How long a cached bypass permission result is trusted
+    private static final long BYPASS_CHECK_INTERVAL = 5000L;
 
     private long combatDurationTicks;
     private long combatDurationSeconds;
     private boolean disableFlightInCombat;
     private boolean thirdPartyProtectionEnabled;
-    private List<String> thirdPartyBlacklistedWorlds;
 
-    private long enderPearlCooldownTicks;
-    private long enderPearlCooldownSeconds;
-    private Map<String, Boolean> worldEnderPearlSettings = new ConcurrentHashMap<>();
-    private boolean enderPearlInCombatOnly;
-    private boolean enderPearlEnabled;
     private boolean refreshCombatOnPearlLand;
-
-    private long tridentCooldownTicks;
-    private long tridentCooldownSeconds;
-    private Map<String, Boolean> worldTridentSettings = new ConcurrentHashMap<>();
-    private boolean tridentInCombatOnly;
-    private boolean tridentEnabled;
     private boolean refreshCombatOnTridentLand;
-    private Map<String, Boolean> worldTridentBannedSettings = new ConcurrentHashMap<>();
-
-    private List<String> blacklistedWorlds;
-
-    private Scheduler.Task cleanupTask;
-    private static final long CLEANUP_INTERVAL = 12000L;
 
     public CombatManager(CelestCombat plugin) {
         this.plugin = plugin;
-        this.playersInCombat = new ConcurrentHashMap<>();
-        this.combatTasks = new ConcurrentHashMap<>();
-        this.combatOpponents = new ConcurrentHashMap<>();
-        this.enderPearlCooldowns = new ConcurrentHashMap<>();
+        this.sessionManager = plugin.getSessionManager();
+        this.worldPolicies = plugin.getWorldPolicyTable();
+        this.cooldownRegistry = new CooldownRegistry(plugin);
 
         loadConfig();
         startGlobalCountdownTimer();
@@ -69,78 +61,29 @@ public class CombatManager {
 
         if (plugin.getConfig().isConfigurationSection("combat.third_party_protection")) {
             this.thirdPartyProtectionEnabled = plugin.getConfig().getBoolean("combat.third_party_protection.enabled", true);
-            this.thirdPartyBlacklistedWorlds = plugin.getConfig().getStringList("combat.third_party_protection.blacklisted_worlds");
         } else {
             this.thirdPartyProtectionEnabled = plugin.getConfig().getBoolean("combat.third_party_protection", true);
-            this.thirdPartyBlacklistedWorlds = List.of();
         }
 
-        this.enderPearlCooldownTicks = plugin.getTimeFromConfig("enderpearl_cooldown.duration", "10s");
-        this.enderPearlCooldownSeconds = enderPearlCooldownTicks / 20;
-        this.enderPearlEnabled = plugin.getConfig().getBoolean("enderpearl_cooldown.enabled", true);
-        this.enderPearlInCombatOnly = plugin.getConfig().getBoolean("enderpearl_cooldown.in_combat_only", true);
         this.refreshCombatOnPearlLand = plugin.getConfig().getBoolean("enderpearl.refresh_combat_on_land", false);
-
-        this.tridentCooldownTicks = plugin.getTimeFromConfig("trident_cooldown.duration", "10s");
-        this.tridentCooldownSeconds = tridentCooldownTicks / 20;
-        this.tridentEnabled = plugin.getConfig().getBoolean("trident_cooldown.enabled", true);
-        this.tridentInCombatOnly = plugin.getConfig().getBoolean("trident_cooldown.in_combat_only", true);
         this.refreshCombatOnTridentLand = plugin.getConfig().getBoolean("trident.refresh_combat_on_land", false);
-
-        this.blacklistedWorlds = plugin.getConfig().getStringList("worlds.blacklisted_worlds");
-
-        loadWorldTridentSettings();
-        loadWorldEnderPearlSettings();
     }
 
-    public boolean isWorldBlacklisted(String worldName) {
-        return blacklistedWorlds.contains(worldName);
+    public boolean isWorldBlacklisted(World world) {
+        return worldPolicies.get(world).isBlacklisted();
     }
 
     public boolean isWorldBlacklisted(Player player) {
-        return player != null && isWorldBlacklisted(player.getWorld().getName());
-    }
-
-    public boolean isThirdPartyProtectionEnabledInWorld(String worldName) {
-        return thirdPartyProtectionEnabled && !thirdPartyBlacklistedWorlds.contains(worldName);
+        return player != null && isWorldBlacklisted(player.getWorld());
     }
 
     public boolean isThirdPartyProtectionEnabledInWorld(Player player) {
-        return player != null && isThirdPartyProtectionEnabledInWorld(player.getWorld().getName());
-    }
-
-    private void loadWorldTridentSettings() {
-        worldTridentSettings.clear();
-        worldTridentBannedSettings.clear();
-
-        if (plugin.getConfig().isConfigurationSection("trident_cooldown.worlds")) {
-            for (String worldName : Objects.requireNonNull(plugin.getConfig().getConfigurationSection("trident_cooldown.worlds")).getKeys(false)) {
-                boolean enabled = plugin.getConfig().getBoolean("trident_cooldown.worlds." + worldName, true);
-                worldTridentSettings.put(worldName, enabled);
-            }
-        }
-
-        if (plugin.getConfig().isConfigurationSection("trident.banned_worlds")) {
-            for (String worldName : Objects.requireNonNull(plugin.getConfig().getConfigurationSection("trident.banned_worlds")).getKeys(false)) {
-                boolean banned = plugin.getConfig().getBoolean("trident.banned_worlds." + worldName, false);
-                worldTridentBannedSettings.put(worldName, banned);
-            }
-        }
+        return player != null && worldPolicies.get(player).isThirdPartyProtection();
     }
 
     public void reloadConfig() {
         loadConfig();
-    }
-
-    private void loadWorldEnderPearlSettings() {
-        worldEnderPearlSettings.clear();
-
-        if (plugin.getConfig().isConfigurationSection("enderpearl_cooldown.worlds")) {
-            for (String worldName : Objects.requireNonNull(plugin.getConfig().getConfigurationSection("enderpearl_cooldown.worlds")).getKeys(false)) {
-                boolean enabled = plugin.getConfig().getBoolean("enderpearl_cooldown.worlds." + worldName, true);
-                worldEnderPearlSettings.put(worldName, enabled);
-            }
-        }
+        cooldownRegistry.loadConfig();
     }
 
     public boolean isThirdPartyProtectionEnabled() {
@@ -194,13 +137,14 @@ public class CombatManager {
             return false;
         }
 
-        UUID player1UUID = player1.getUniqueId();
-        UUID player2UUID = player2.getUniqueId();
-
-        UUID player1Opponent = combatOpponents.get(player1UUID);
-        UUID player2Opponent = combatOpponents.get(player2UUID);
+        PlayerSession session1 = sessionManager.getSession(player1);
+        PlayerSession session2 = sessionManager.getSession(player2);
+        if (session1 == null || session2 == null) {
+            return false;
+        }
 
-        return player2UUID.equals(player1Opponent) && player1UUID.equals(player2Opponent);
+        return player2.getUniqueId().equals(session1.getCombatOpponent()) &&
+            player1.getUniqueId().equals(session2.getCombatOpponent());
     }
 
     private void startGlobalCountdownTimer() {
@@ -211,54 +155,115 @@ public class CombatManager {
         globalCountdownTask = Scheduler.runTaskTimer(() -> {
             long currentTime = System.currentTimeMillis();
 
-            for (Map.Entry<UUID, Long> entry : new HashMap<>(playersInCombat).entrySet()) {
-                UUID playerUUID = entry.getKey();
-                long combatEndTime = entry.getValue();
-
-                if (currentTime > combatEndTime) {
-                    Player player = Bukkit.getPlayer(playerUUID);
-                    if (player != null && player.isOnline()) {
-                        removeFromCombat(player);
-                    } else {
-                        playersInCombat.remove(playerUUID);
-                        combatOpponents.remove(playerUUID);
-                        Scheduler.Task task = combatTasks.remove(playerUUID);
-                        if (task != null) {
-                            task.cancel();
-                        }
-                    }
-                    continue;
-                }
+            for (PlayerSession session : combatExpiryWheel.advance(currentTime)) {
+                expireCombatTag(session, currentTime);
+            }
 
-                Player player = Bukkit.getPlayer(playerUUID);
-                if (player != null && player.isOnline()) {
+            for (PlayerSession session : taggedSessions) {
+                Player player = session.getPlayer();
+                if (player.isOnline()) {
                     updatePlayerCountdown(player, currentTime);
                 }
             }
 
-            enderPearlCooldowns.entrySet().removeIf(entry ->
-                currentTime > entry.getValue() ||
-                    Bukkit.getPlayer(entry.getKey()) == null
-            );
+            // Players with a running cooldown but no combat tag still get their countdown
+            for (PlayerSession session : cooldownRegistry.sweep(currentTime)) {
+                if (session.getCombatEndTime() != 0L) continue;
 
-            tridentCooldowns.entrySet().removeIf(entry ->
-                currentTime > entry.getValue() ||
-                    Bukkit.getPlayer(entry.getKey()) == null
-            );
+                Player player = session.getPlayer();
+                if (player.isOnline()) {
+                    updatePlayerCountdown(player, currentTime);
+                } else {
+                    cooldownRegistry.release(session);
+                }
+            }
 
         }, 0L, COUNTDOWN_INTERVAL);
     }
 
+    private void expireCombatTag(PlayerSession session, long currentTime) {
+        long combatEndTime = session.getCombatEndTime();
+        if (combatEndTime == 0L) {
+            return;
+        }
+
+        // The tag may have been refreshed after the wheel released it
+        if (currentTime <= combatEndTime) {
+            combatExpiryWheel.schedule(session, combatEndTime);
+            return;
+        }
+
+        Player player = session.getPlayer();
+        if (player.isOnline()) {
+            removeFromCombat(player);
+        } else {
+            clearCombat(session);
+        }
+    }
+
+    private void setCombatEndTime(PlayerSession session, long combatEndTime) {
+        long previousEndTime = session.getCombatEndTime();
+        session.setCombatEndTime(combatEndTime);
+
+        // An extended tag stays in its slot, expireCombatTag reschedules it once that slot is due
+        if (previousEndTime == 0L || combatEndTime < previousEndTime) {
+            taggedSessions.add(session);
+            combatExpiryWheel.schedule(session, combatEndTime);
+        }
+
+        if (previousEndTime == 0L) {
+            onTagStart(session.getPlayer());
+        }
+    }
+
+    private void clearCombat(PlayerSession session) {
+        boolean wasTagged = session.getCombatEndTime() != 0L;
+
+        session.setCombatEndTime(0L);
+        session.setCombatOpponent(null);
+        taggedSessions.remove(session);
+        combatExpiryWheel.cancel(session);
+
+        if (wasTagged) {
+            refreshCommands(session.getPlayer());
+        }
+    }
+
+    /**
+     * Applies everything that changes the moment a player becomes tagged
+     */
+    private void onTagStart(Player player) {
+        if (!player.isOnline()) return;
+
+        Scheduler.runEntityTask(player, () -> {
+            player.updateCommands();
+
+            ItemRestrictionListener itemRestrictions = plugin.getItemRestrictionListener();
+            if (itemRestrictions != null) {
+                itemRestrictions.enforceOnTag(player);
+            }
+        });
+    }
+
+    /**
+     * Resends the command tree so blocked commands are hidden while tagged and shown again after
+     */
+    private void refreshCommands(Player player) {
+        if (player.isOnline()) {
+            Scheduler.runEntityTask(player, player::updateCommands);
+        }
+    }
+
     private void updatePlayerCountdown(Player player, long currentTime) {
         if (player == null || !player.isOnline() || isWorldBlacklisted(player)) return;
 
-        UUID playerUUID = player.getUniqueId();
-        boolean inCombat = playersInCombat.containsKey(playerUUID) &&
-            currentTime <= playersInCombat.get(playerUUID);
-        boolean hasPearlCooldown = enderPearlCooldowns.containsKey(playerUUID) &&
-            currentTime <= enderPearlCooldowns.get(playerUUID);
-        boolean hasTridentCooldown = tridentCooldowns.containsKey(playerUUID) &&
-            currentTime <= tridentCooldowns.get(playerUUID);
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) return;
+
+        long combatEndTime = session.getCombatEndTime();
+        boolean inCombat = combatEndTime != 0L && currentTime <= combatEndTime;
+        boolean hasPearlCooldown = isOnCooldown(player, CooldownType.ENDER_PEARL, currentTime);
+        boolean hasTridentCooldown = isOnCooldown(player, CooldownType.TRIDENT, currentTime);
 
         if (!inCombat && !hasPearlCooldown && !hasTridentCooldown) {
             return;
@@ -272,18 +277,18 @@ public class CombatManager {
             placeholders.put("combat_time", String.valueOf(remainingCombatTime));
 
             if (hasPearlCooldown && hasTridentCooldown) {
-                int remainingPearlTime = getRemainingEnderPearlCooldown(player, currentTime);
-                int remainingTridentTime = getRemainingTridentCooldown(player, currentTime);
+                int remainingPearlTime = getRemainingCooldown(player, CooldownType.ENDER_PEARL, currentTime);
+                int remainingTridentTime = getRemainingCooldown(player, CooldownType.TRIDENT, currentTime);
 
                 placeholders.put("pearl_time", String.valueOf(remainingPearlTime));
                 placeholders.put("trident_time", String.valueOf(remainingTridentTime));
                 plugin.getMessageService().sendMessage(player, "combat_pearl_trident_countdown", placeholders);
             } else if (hasPearlCooldown) {
-                int remainingPearlTime = getRemainingEnderPearlCooldown(player, currentTime);
+                int remainingPearlTime = getRemainingCooldown(player, CooldownType.ENDER_PEARL, currentTime);
                 placeholders.put("pearl_time", String.valueOf(remainingPearlTime));
                 plugin.getMessageService().sendMessage(player, "combat_pearl_countdown", placeholders);
             } else if (hasTridentCooldown) {
-                int remainingTridentTime = getRemainingTridentCooldown(player, currentTime);
+                int remainingTridentTime = getRemainingCooldown(player, CooldownType.TRIDENT, currentTime);
                 placeholders.put("trident_time", String.valueOf(remainingTridentTime));
                 plugin.getMessageService().sendMessage(player, "combat_trident_countdown", placeholders);
             } else {
@@ -293,20 +298,20 @@ public class CombatManager {
                 }
             }
         } else if (hasPearlCooldown && hasTridentCooldown) {
-            int remainingPearlTime = getRemainingEnderPearlCooldown(player, currentTime);
-            int remainingTridentTime = getRemainingTridentCooldown(player, currentTime);
+            int remainingPearlTime = getRemainingCooldown(player, CooldownType.ENDER_PEARL, currentTime);
+            int remainingTridentTime = getRemainingCooldown(player, CooldownType.TRIDENT, currentTime);
 
             placeholders.put("pearl_time", String.valueOf(remainingPearlTime));
             placeholders.put("trident_time", String.valueOf(remainingTridentTime));
             plugin.getMessageService().sendMessage(player, "pearl_trident_countdown", placeholders);
         } else if (hasPearlCooldown) {
-            int remainingPearlTime = getRemainingEnderPearlCooldown(player, currentTime);
+            int remainingPearlTime = getRemainingCooldown(player, CooldownType.ENDER_PEARL, currentTime);
             if (remainingPearlTime > 0) {
                 placeholders.put("time", String.valueOf(remainingPearlTime));
                 plugin.getMessageService().sendMessage(player, "pearl_only_countdown", placeholders);
             }
         } else if (hasTridentCooldown) {
-            int remainingTridentTime = getRemainingTridentCooldown(player, currentTime);
+            int remainingTridentTime = getRemainingCooldown(player, CooldownType.TRIDENT, currentTime);
             if (remainingTridentTime > 0) {
                 placeholders.put("time", String.valueOf(remainingTridentTime));
                 plugin.getMessageService().sendMessage(player, "trident_only_countdown", placeholders);
@@ -315,37 +320,52 @@ public class CombatManager {
     }
 
     public void tagPlayer(Player player, Player attacker) {
-        if (player == null || attacker == null || isWorldBlacklisted(player)) return;
+        if (player == null || attacker == null) return;
 
-        if (player.hasPermission("celestcombat.bypass.tag")) {
-            return;
-        }
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) return;
 
-        UUID playerUUID = player.getUniqueId();
-        long newEndTime = System.currentTimeMillis() + (combatDurationSeconds * 1000L);
+        long currentTime = System.currentTimeMillis();
+        tagSession(session, attacker.getUniqueId(), currentTime + (combatDurationSeconds * 1000L), currentTime);
+    }
 
-        boolean alreadyInCombat = playersInCombat.containsKey(playerUUID);
-        boolean alreadyInCombatWithAttacker = alreadyInCombat &&
-            attacker.getUniqueId().equals(combatOpponents.get(playerUUID));
+    /**
+     * Tags both players of a hit against each other.
+     * This runs on every PvP hit, so it does one session lookup and one clock read per player
+     * and allocates nothing once both players are already tagged.
+     */
+    public void tagPair(PlayerSession attackerSession, PlayerSession victimSession, long currentTime) {
+        long newEndTime = currentTime + (combatDurationSeconds * 1000L);
+        tagSession(attackerSession, victimSession.getUuid(), newEndTime, currentTime);
+        tagSession(victimSession, attackerSession.getUuid(), newEndTime, currentTime);
+    }
 
-        if (alreadyInCombatWithAttacker) {
-            long currentEndTime = playersInCombat.get(playerUUID);
-            if (newEndTime <= currentEndTime) {
-                return;
-            }
+    private void tagSession(PlayerSession session, UUID opponentUUID, long newEndTime, long currentTime) {
+        Player player = session.getPlayer();
+        if (isWorldBlacklisted(player) || hasTagBypass(session, currentTime)) return;
+
+        long currentEndTime = session.getCombatEndTime();
+        boolean alreadyInCombatWithOpponent = currentEndTime != 0L &&
+            opponentUUID.equals(session.getCombatOpponent());
+
+        if (alreadyInCombatWithOpponent && newEndTime <= currentEndTime) {
+            return;
         }
 
-        if (shouldDisableFlight(player) && player.isFlying()) {
+        if (player.isFlying() && shouldDisableFlight(player)) {
             player.setFlying(false);
         }
 
-        combatOpponents.put(playerUUID, attacker.getUniqueId());
-        playersInCombat.put(playerUUID, newEndTime);
+        session.setCombatOpponent(opponentUUID);
+        setCombatEndTime(session, newEndTime);
+    }
 
-        Scheduler.Task existingTask = combatTasks.get(playerUUID);
-        if (existingTask != null) {
-            existingTask.cancel();
+    private boolean hasTagBypass(PlayerSession session, long currentTime) {
+        if (currentTime - session.getTagBypassCheckTime() > BYPASS_CHECK_INTERVAL) {
+            session.setTagBypass(session.getPlayer().hasPermission("celestcombat.bypass.tag"));
+            session.setTagBypassCheckTime(currentTime);
         }
+        return session.isTagBypass();
     }
 
     public void punishCombatLogout(Player player) {
@@ -358,19 +378,12 @@ public class CombatManager {
     public void removeFromCombat(Player player) {
         if (player == null) return;
 
-        UUID playerUUID = player.getUniqueId();
-
-        if (!playersInCombat.containsKey(playerUUID)) {
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null || session.getCombatEndTime() == 0L) {
             return;
         }
 
-        playersInCombat.remove(playerUUID);
-        combatOpponents.remove(playerUUID);
-
-        Scheduler.Task task = combatTasks.remove(playerUUID);
-        if (task != null) {
-            task.cancel();
-        }
+        clearCombat(session);
 
         if (player.isOnline() && !isWorldBlacklisted(player)) {
             plugin.getMessageService().sendMessage(player, "combat_expired");
@@ -380,38 +393,39 @@ public class CombatManager {
     public void removeFromCombatSilently(Player player) {
         if (player == null) return;
 
-        UUID playerUUID = player.getUniqueId();
-
-        playersInCombat.remove(playerUUID);
-        combatOpponents.remove(playerUUID);
-
-        Scheduler.Task task = combatTasks.remove(playerUUID);
-        if (task != null) {
-            task.cancel();
+        PlayerSession session = sessionManager.getSession(player);
+        if (session != null) {
+            clearCombat(session);
         }
     }
 
     public Player getCombatOpponent(Player player) {
         if (player == null || isWorldBlacklisted(player)) return null;
 
-        UUID playerUUID = player.getUniqueId();
-        if (!playersInCombat.containsKey(playerUUID)) return null;
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null || session.getCombatEndTime() == 0L) return null;
 
-        UUID opponentUUID = combatOpponents.get(playerUUID);
+        UUID opponentUUID = session.getCombatOpponent();
         if (opponentUUID == null) return null;
 
-        return Bukkit.getPlayer(opponentUUID);
+        // Sessions only exist for online players, the opponent's one holds its current player object
+        PlayerSession opponentSession = sessionManager.getSession(opponentUUID);
+        return opponentSession != null ? opponentSession.getPlayer() : null;
     }
 
     public boolean isInCombat(Player player) {
         if (player == null || isWorldBlacklisted(player)) return false;
 
-        UUID playerUUID = player.getUniqueId();
-        if (!playersInCombat.containsKey(playerUUID)) {
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) {
+            return false;
+        }
+
+        long combatEndTime = session.getCombatEndTime();
+        if (combatEndTime == 0L) {
             return false;
         }
 
-        long combatEndTime = playersInCombat.get(playerUUID);
         long currentTime = System.currentTimeMillis();
 
         if (currentTime > combatEndTime) {
@@ -429,10 +443,12 @@ public class CombatManager {
     private int getRemainingCombatTime(Player player, long currentTime) {
         if (player == null || isWorldBlacklisted(player)) return 0;
 
-        UUID playerUUID = player.getUniqueId();
-        if (!playersInCombat.containsKey(playerUUID)) return 0;
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) return 0;
+
+        long endTime = session.getCombatEndTime();
+        if (endTime == 0L) return 0;
 
-        long endTime = playersInCombat.get(playerUUID);
         return (int) Math.ceil(Math.max(0, (endTime - currentTime) / 1000.0));
     }
 
@@ -444,87 +460,23 @@ public class CombatManager {
         }
     }
 
-    public void setEnderPearlCooldown(Player player) {
-        if (player == null || isWorldBlacklisted(player)) return;
-
-        if (!enderPearlEnabled) {
-            return;
-        }
-
-        String worldName = player.getWorld().getName();
-        if (worldEnderPearlSettings.containsKey(worldName) && !worldEnderPearlSettings.get(worldName)) {
-            return;
-        }
-
-        if (enderPearlInCombatOnly && !isInCombat(player)) {
-            return;
-        }
-
-        enderPearlCooldowns.put(player.getUniqueId(),
-            System.currentTimeMillis() + (enderPearlCooldownSeconds * 1000L));
-    }
-
-    public boolean isEnderPearlOnCooldown(Player player) {
-        if (player == null || isWorldBlacklisted(player)) return false;
-
-        if (!enderPearlEnabled) {
-            return false;
-        }
-
-        String worldName = player.getWorld().getName();
-        if (worldEnderPearlSettings.containsKey(worldName) && !worldEnderPearlSettings.get(worldName)) {
-            return false;
-        }
-
-        if (enderPearlInCombatOnly && !isInCombat(player)) {
-            return false;
-        }
-
-        UUID playerUUID = player.getUniqueId();
-        if (!enderPearlCooldowns.containsKey(playerUUID)) {
-            return false;
-        }
-
-        long cooldownEndTime = enderPearlCooldowns.get(playerUUID);
-        long currentTime = System.currentTimeMillis();
-
-        if (currentTime > cooldownEndTime) {
-            enderPearlCooldowns.remove(playerUUID);
-            return false;
-        }
-
-        return true;
-    }
-
     public void refreshCombatOnPearlLand(Player player) {
         if (player == null || !refreshCombatOnPearlLand || isWorldBlacklisted(player)) return;
 
         if (!isInCombat(player)) return;
 
-        UUID playerUUID = player.getUniqueId();
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) return;
+
         long newEndTime = System.currentTimeMillis() + (combatDurationSeconds * 1000L);
-        long currentEndTime = playersInCombat.getOrDefault(playerUUID, 0L);
+        long currentEndTime = session.getCombatEndTime();
 
         if (newEndTime > currentEndTime) {
-            playersInCombat.put(playerUUID, newEndTime);
+            setCombatEndTime(session, newEndTime);
             plugin.debug("Refreshed combat time for " + player.getName() + " due to pearl landing");
         }
     }
 
-    public int getRemainingEnderPearlCooldown(Player player) {
-        return getRemainingEnderPearlCooldown(player, System.currentTimeMillis());
-    }
-
-    private int getRemainingEnderPearlCooldown(Player player, long currentTime) {
-        if (player == null || isWorldBlacklisted(player)) return 0;
-
-        UUID playerUUID = player.getUniqueId();
-        if (!enderPearlCooldowns.containsKey(playerUUID)) return 0;
-
-        long endTime = enderPearlCooldowns.get(playerUUID);
-        return (int) Math.ceil(Math.max(0, (endTime - currentTime) / 1000.0));
-    }
-
     public boolean shouldDisableFlight(Player player) {
         if (player == null || isWorldBlacklisted(player)) return false;
 
@@ -539,63 +491,74 @@ public class CombatManager {
         return true;
     }
 
-    public void setTridentCooldown(Player player) {
+    public void setCooldown(Player player, CooldownType type) {
         if (player == null || isWorldBlacklisted(player)) return;
 
-        if (!tridentEnabled) {
+        CooldownRegistry.Settings settings = cooldownRegistry.getSettings(type);
+        if (!worldPolicies.get(player).isCooldownEnabled(type)) {
             return;
         }
 
-        String worldName = player.getWorld().getName();
-        if (worldTridentSettings.containsKey(worldName) && !worldTridentSettings.get(worldName)) {
+        if (settings.isInCombatOnly() && !isInCombat(player)) {
             return;
         }
 
-        if (tridentInCombatOnly && !isInCombat(player)) {
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) {
             return;
         }
 
-        tridentCooldowns.put(player.getUniqueId(),
-            System.currentTimeMillis() + (tridentCooldownSeconds * 1000L));
+        cooldownRegistry.setExpiry(session, type, System.currentTimeMillis() + settings.getDurationMillis());
+    }
+
+    public boolean isOnCooldown(Player player, CooldownType type) {
+        return isOnCooldown(player, type, System.currentTimeMillis());
     }
 
-    public boolean isTridentOnCooldown(Player player) {
+    private boolean isOnCooldown(Player player, CooldownType type, long currentTime) {
         if (player == null || isWorldBlacklisted(player)) return false;
 
-        if (!tridentEnabled) {
+        CooldownRegistry.Settings settings = cooldownRegistry.getSettings(type);
+        if (!worldPolicies.get(player).isCooldownEnabled(type)) {
             return false;
         }
 
-        String worldName = player.getWorld().getName();
-        if (worldTridentSettings.containsKey(worldName) && !worldTridentSettings.get(worldName)) {
+        if (settings.isInCombatOnly() && !isInCombat(player)) {
             return false;
         }
 
-        if (tridentInCombatOnly && !isInCombat(player)) {
-            return false;
-        }
+        PlayerSession session = sessionManager.getSession(player);
+        return session != null && currentTime <= cooldownRegistry.getExpiry(session, type);
+    }
 
-        UUID playerUUID = player.getUniqueId();
-        if (!tridentCooldowns.containsKey(playerUUID)) {
-            return false;
-        }
+    public int getRemainingCooldown(Player player, CooldownType type) {
+        return getRemainingCooldown(player, type, System.currentTimeMillis());
+    }
 
-        long cooldownEndTime = tridentCooldowns.get(playerUUID);
-        long currentTime = System.currentTimeMillis();
+    private int getRemainingCooldown(Player player, CooldownType type, long currentTime) {
+        if (player == null || isWorldBlacklisted(player)) return 0;
 
-        if (currentTime > cooldownEndTime) {
-            tridentCooldowns.remove(playerUUID);
-            return false;
-        }
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) return 0;
 
-        return true;
+        long endTime = cooldownRegistry.getExpiry(session, type);
+        return (int) Math.ceil(Math.max(0, (endTime - currentTime) / 1000.0));
+    }
+
+    public void clearCooldowns(Player player) {
+        if (player == null) return;
+
+        PlayerSession session = sessionManager.getSession(player);
+        if (session != null) {
+            cooldownRegistry.release(session);
+        }
     }
 
     public boolean isTridentBanned(Player player) {
-        if (player == null || isWorldBlacklisted(player)) return false;
+        if (player == null) return false;
 
-        String worldName = player.getWorld().getName();
-        return worldTridentBannedSettings.getOrDefault(worldName, false);
+        WorldPolicy policy = worldPolicies.get(player);
+        return !policy.isBlacklisted() && policy.isTridentBanned();
     }
 
     public void refreshCombatOnTridentLand(Player player) {
@@ -603,47 +566,30 @@ public class CombatManager {
 
         if (!isInCombat(player)) return;
 
-        UUID playerUUID = player.getUniqueId();
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) return;
+
         long newEndTime = System.currentTimeMillis() + (combatDurationSeconds * 1000L);
-        long currentEndTime = playersInCombat.getOrDefault(playerUUID, 0L);
+        long currentEndTime = session.getCombatEndTime();
 
         if (newEndTime > currentEndTime) {
-            playersInCombat.put(playerUUID, newEndTime);
+            setCombatEndTime(session, newEndTime);
             plugin.debug("Refreshed combat time for " + player.getName() + " due to trident landing");
         }
     }
 
-    public int getRemainingTridentCooldown(Player player) {
-        return getRemainingTridentCooldown(player, System.currentTimeMillis());
-    }
-
-    private int getRemainingTridentCooldown(Player player, long currentTime) {
-        if (player == null || isWorldBlacklisted(player)) return 0;
-
-        UUID playerUUID = player.getUniqueId();
-        if (!tridentCooldowns.containsKey(playerUUID)) return 0;
-
-        long endTime = tridentCooldowns.get(playerUUID);
-        return (int) Math.ceil(Math.max(0, (endTime - currentTime) / 1000.0));
-    }
-
     public void shutdown() {
         if (globalCountdownTask != null) {
             globalCountdownTask.cancel();
             globalCountdownTask = null;
         }
 
-        if (cleanupTask != null) {
-            cleanupTask.cancel();
-            cleanupTask = null;
+        for (PlayerSession session : taggedSessions) {
+            session.setCombatEndTime(0L);
+            session.setCombatOpponent(null);
         }
-
-        combatTasks.values().forEach(Scheduler.Task::cancel);
-        combatTasks.clear();
-
-        playersInCombat.clear();
-        combatOpponents.clear();
-        enderPearlCooldowns.clear();
-        tridentCooldowns.clear();
+        taggedSessions.clear();
+        combatExpiryWheel.clear();
+        cooldownRegistry.clearAll();
     }
 }
\ No newline at end of file
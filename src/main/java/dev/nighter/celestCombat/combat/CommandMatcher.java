@@ -0,0 +1,187 @@
+package dev.nighter.celestCombat.combat;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches a typed command against a compiled list of command rules.
+ *
+ * Rules are either exact labels ("spawn") or wildcard prefixes ("tp*"). Both are stored in
+ * one character trie, so a lookup walks the typed label straight out of the chat message
+ * without splitting or lowercasing it, and its cost does not grow with the number of rules.
+ * Exact rules are expanded through the server command map at compile time, so aliases and
+ * namespaced labels ("essentials:spawn") of a listed command match as well.
+ *
+ * The block mode is compiled in with the rules, so a reload swaps both in one write.
+ */
+public final class CommandMatcher {
+    private final Node root = new Node();
+    private final boolean blacklistMode;
+
+    // Results for command tree labels, shared by every player that gets the same tree
+    private final Map<String, Boolean> labelResults = new ConcurrentHashMap<>();
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean exact;
+        private boolean prefix;
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node getOrCreateChild(char key) {
+            Node child = child(key);
+            if (child == null) {
+                child = new Node();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                children = Arrays.copyOf(children, children.length + 1);
+                keys[keys.length - 1] = key;
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    private CommandMatcher(boolean blacklistMode) {
+        this.blacklistMode = blacklistMode;
+    }
+
+    /**
+     * Compiles a list of command rules
+     *
+     * @param rules         The configured rules, a trailing * marks a prefix rule
+     * @param blacklistMode true if the rules list blocked commands, false if they list allowed ones
+     * @param commandMap    The server command map used to resolve aliases, may be null
+     * @return The compiled matcher
+     */
+    public static CommandMatcher compile(Collection<String> rules, boolean blacklistMode, CommandMap commandMap) {
+        CommandMatcher matcher = new CommandMatcher(blacklistMode);
+        Map<String, Command> knownCommands = commandMap != null ? commandMap.getKnownCommands() : Map.of();
+
+        for (String rule : rules) {
+            String normalized = rule.trim().toLowerCase(Locale.ROOT);
+            if (normalized.startsWith("/")) {
+                normalized = normalized.substring(1);
+            }
+
+            if (normalized.endsWith("*")) {
+                matcher.insert(normalized.substring(0, normalized.length() - 1), true);
+                continue;
+            }
+
+            if (normalized.isEmpty()) continue;
+            matcher.insert(normalized, false);
+
+            // Every label the same command is known by - aliases and namespace:label forms
+            Command command = knownCommands.get(normalized);
+            if (command == null) continue;
+
+            for (Map.Entry<String, Command> entry : knownCommands.entrySet()) {
+                if (entry.getValue() == command) {
+                    matcher.insert(entry.getKey().toLowerCase(Locale.ROOT), false);
+                }
+            }
+        }
+
+        return matcher;
+    }
+
+    public boolean isBlacklistMode() {
+        return blacklistMode;
+    }
+
+    /**
+     * Checks whether a tagged player may not run a command message.
+     * Blacklist mode blocks listed commands, whitelist mode blocks everything that is not listed.
+     */
+    public boolean blocks(String message) {
+        return blacklistMode == matches(message);
+    }
+
+    /**
+     * Checks whether a command tree label is blocked, see {@link #blocks(String)}
+     */
+    public boolean blocksLabel(String label) {
+        return blacklistMode == matchesLabel(label);
+    }
+
+    /**
+     * Checks whether the command in a chat message matches any rule
+     *
+     * @param message The raw command message, with or without the leading slash
+     * @return true if the label, or the label without its namespace, matches a rule
+     */
+    public boolean matches(String message) {
+        int start = !message.isEmpty() && message.charAt(0) == '/' ? 1 : 0;
+        int end = message.indexOf(' ', start);
+        if (end < 0) {
+            end = message.length();
+        }
+
+        if (matches(message, start, end)) {
+            return true;
+        }
+
+        int namespaceEnd = message.indexOf(':', start);
+        return namespaceEnd >= 0 && namespaceEnd < end && matches(message, namespaceEnd + 1, end);
+    }
+
+    /**
+     * Checks a bare command label, as sent in the client command tree.
+     * Results are cached on this matcher, so a reload starts with an empty cache.
+     */
+    public boolean matchesLabel(String label) {
+        return labelResults.computeIfAbsent(label, this::matches);
+    }
+
+    private boolean matches(String message, int start, int end) {
+        Node node = root;
+        for (int i = start; i < end; i++) {
+            if (node.prefix) {
+                return true;
+            }
+
+            node = node.child(Character.toLowerCase(message.charAt(i)));
+            if (node == null) {
+                return false;
+            }
+        }
+
+        return node.exact || node.prefix;
+    }
+
+    private void insert(String label, boolean prefix) {
+        Node node = root;
+        for (int i = 0; i < label.length(); i++) {
+            node = node.getOrCreateChild(label.charAt(i));
+        }
+
+        if (prefix) {
+            node.prefix = true;
+        } else {
+            node.exact = true;
+        }
+    }
+
+    /**
+     * Extracts the lower case label of a command message, used for display only
+     */
+    public static String label(String message) {
+        int start = !message.isEmpty() && message.charAt(0) == '/' ? 1 : 0;
+        int end = message.indexOf(' ', start);
+        return message.substring(start, end < 0 ? message.length() : end).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,176 @@
+package dev.nighter.celestCombat.combat;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.session.PlayerSession;
+import lombok.Getter;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Stores every item cooldown in one primitive table.
+ *
+ * Rows are addressed by the {@link PlayerSession} index, and each row holds one
+ * end time per {@link CooldownType}. A single bitset marks the rows that still
+ * have something running, so one sweep per countdown tick covers every cooldown
+ * type at once.
+ */
+public class CooldownRegistry {
+    private static final CooldownType[] TYPES = CooldownType.values();
+    private static final int TYPE_COUNT = TYPES.length;
+    private static final int INITIAL_SLOTS = 64;
+
+    private final CelestCombat plugin;
+    private final Settings[] settings = new Settings[TYPE_COUNT];
+
+    // Cooldown end times in milliseconds, TYPE_COUNT entries per slot
+    private long[] expiries = new long[INITIAL_SLOTS * TYPE_COUNT];
+    private PlayerSession[] owners = new PlayerSession[INITIAL_SLOTS];
+    private final BitSet activeSlots = new BitSet(INITIAL_SLOTS);
+
+    // Filled by each sweep, reused so a sweep with nothing expired allocates nothing
+    private final List<PlayerSession> sweepBuffer = new ArrayList<>();
+
+    @Getter
+    public static final class Settings {
+        private final boolean enabled;
+        private final long durationMillis;
+        private final boolean inCombatOnly;
+
+        Settings(boolean enabled, long durationMillis, boolean inCombatOnly) {
+            this.enabled = enabled;
+            this.durationMillis = durationMillis;
+            this.inCombatOnly = inCombatOnly;
+        }
+    }
+
+    public CooldownRegistry(CelestCombat plugin) {
+        this.plugin = plugin;
+        loadConfig();
+    }
+
+    public void loadConfig() {
+        FileConfiguration config = plugin.getConfig();
+
+        for (CooldownType type : TYPES) {
+            String path = type.getConfigPath();
+            boolean enabled = config.getBoolean(path + ".enabled", type.isEnabledByDefault());
+            long durationMillis = plugin.getTimeFromConfigInMilliseconds(path + ".duration", type.getDefaultDuration());
+            boolean inCombatOnly = config.getBoolean(path + ".in_combat_only", true);
+
+            // Per-world toggles are compiled into the WorldPolicyTable
+            settings[type.ordinal()] = new Settings(enabled, durationMillis, inCombatOnly);
+        }
+    }
+
+    public Settings getSettings(CooldownType type) {
+        return settings[type.ordinal()];
+    }
+
+    /**
+     * Gets the time at which a cooldown ends
+     *
+     * @return The end time in milliseconds, or 0 if the player has no such cooldown
+     */
+    public synchronized long getExpiry(PlayerSession session, CooldownType type) {
+        int slot = session.getIndex();
+        if (slot >= owners.length || owners[slot] != session) {
+            return 0L;
+        }
+        return expiries[slot * TYPE_COUNT + type.ordinal()];
+    }
+
+    public synchronized void setExpiry(PlayerSession session, CooldownType type, long endTime) {
+        int slot = acquireSlot(session);
+        expiries[slot * TYPE_COUNT + type.ordinal()] = endTime;
+        activeSlots.set(slot);
+    }
+
+    public synchronized void clear(PlayerSession session, CooldownType type) {
+        int slot = session.getIndex();
+        if (slot < owners.length && owners[slot] == session) {
+            expiries[slot * TYPE_COUNT + type.ordinal()] = 0L;
+        }
+    }
+
+    /**
+     * Drops every cooldown of a player so the session slot can be reused
+     */
+    public synchronized void release(PlayerSession session) {
+        int slot = session.getIndex();
+        if (slot >= owners.length || owners[slot] != session) {
+            return;
+        }
+
+        clearSlot(slot);
+    }
+
+    /**
+     * Clears finished cooldowns and returns the players that still have at least one running
+     *
+     * @param currentTime The current time in milliseconds
+     * @return The sessions with an active cooldown, the list is reused by the next sweep
+     */
+    public synchronized List<PlayerSession> sweep(long currentTime) {
+        List<PlayerSession> active = sweepBuffer;
+        active.clear();
+        if (activeSlots.isEmpty()) {
+            return active;
+        }
+
+        for (int slot = activeSlots.nextSetBit(0); slot >= 0; slot = activeSlots.nextSetBit(slot + 1)) {
+            int base = slot * TYPE_COUNT;
+            boolean running = false;
+
+            for (int i = 0; i < TYPE_COUNT; i++) {
+                if (expiries[base + i] > currentTime) {
+                    running = true;
+                } else {
+                    expiries[base + i] = 0L;
+                }
+            }
+
+            if (running) {
+                active.add(owners[slot]);
+            } else {
+                activeSlots.clear(slot);
+            }
+        }
+
+        return active;
+    }
+
+    public synchronized void clearAll() {
+        Arrays.fill(expiries, 0L);
+        Arrays.fill(owners, null);
+        activeSlots.clear();
+    }
+
+    private int acquireSlot(PlayerSession session) {
+        int slot = session.getIndex();
+        if (slot >= owners.length) {
+            int capacity = owners.length;
+            while (capacity <= slot) {
+                capacity *= 2;
+            }
+            owners = Arrays.copyOf(owners, capacity);
+            expiries = Arrays.copyOf(expiries, capacity * TYPE_COUNT);
+        }
+
+        // The index may still hold cooldowns of a previous session
+        if (owners[slot] != session) {
+            clearSlot(slot);
+            owners[slot] = session;
+        }
+        return slot;
+    }
+
+    private void clearSlot(int slot) {
+        Arrays.fill(expiries, slot * TYPE_COUNT, (slot + 1) * TYPE_COUNT, 0L);
+        owners[slot] = null;
+        activeSlots.clear(slot);
+    }
+}
@@ -0,0 +1,29 @@
+package dev.nighter.celestCombat.combat;
+
+import lombok.Getter;
+
+/**
+ * Item cooldowns tracked by the {@link CooldownRegistry}.
+ * Each type is configured under its own section in config.yml.
+ */
+@Getter
+public enum CooldownType {
+    ENDER_PEARL("enderpearl_cooldown", "Ender Pearl", true, "10s"),
+    TRIDENT("trident_cooldown", "Trident", true, "10s"),
+    WIND_CHARGE("wind_charge_cooldown", "Wind Charge", false, "5s"),
+    GOLDEN_APPLE("golden_apple_cooldown", "Golden Apple", false, "10s"),
+    CHORUS_FRUIT("chorus_fruit_cooldown", "Chorus Fruit", false, "10s"),
+    TOTEM("totem_cooldown", "Totem of Undying", false, "30s");
+
+    private final String configPath;
+    private final String displayName;
+    private final boolean enabledByDefault;
+    private final String defaultDuration;
+
+    CooldownType(String configPath, String displayName, boolean enabledByDefault, String defaultDuration) {
+        this.configPath = configPath;
+        this.displayName = displayName;
+        this.enabledByDefault = enabledByDefault;
+        this.defaultDuration = defaultDuration;
+    }
+}
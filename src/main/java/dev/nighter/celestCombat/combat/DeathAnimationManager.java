@@ -2,13 +2,13 @@ package dev.nighter.celestCombat.combat;
 
 import dev.nighter.celestCombat.CelestCombat;
 import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.configs.CelestConfig;
 import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -21,13 +21,15 @@ public class DeathAnimationManager {
     }
 
     public void performDeathAnimation(Player victim, Player killer) {
+        CelestConfig config = plugin.getCelestConfig();
+
         // Check if death animations are enabled
-        if (!plugin.getConfig().getBoolean("death_animation.enabled", true)) {
+        if (!config.isDeathAnimationEnabled()) {
             return;
         }
 
         // Check if the death was by another player
-        if (killer == null && plugin.getConfig().getBoolean("death_animation.only_player_kill", true)) {
+        if (killer == null && config.isDeathAnimationOnlyPlayerKill()) {
             return;
         }
 
@@ -37,15 +39,7 @@ public class DeathAnimationManager {
         if (world == null) return;
 
         // Get available animations from config
-        List<String> availableAnimations = new ArrayList<>();
-
-        // Check each animation type
-        if (plugin.getConfig().getBoolean("death_animation.animation.lightning", true)) {
-            availableAnimations.add("lightning");
-        }
-        if (plugin.getConfig().getBoolean("death_animation.animation.fire_particles", true)) {
-            availableAnimations.add("fire_particles");
-        }
+        List<String> availableAnimations = config.getDeathAnimations();
 
         // If no animations are available, return
         if (availableAnimations.isEmpty()) {
@@ -0,0 +1,170 @@
+package dev.nighter.celestCombat.combat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hashed timing wheel that expires keys at a fixed tick resolution.
+ *
+ * Every key lives in the slot of the tick it is due in, so advancing the wheel only
+ * touches the slots that elapsed since the last call instead of every scheduled key.
+ * Scheduling, rescheduling and cancelling a key are O(1) slot moves.
+ *
+ * @param <K> The type of keys scheduled on this wheel
+ */
+public class TimingWheel<K> {
+    private final Node<K>[] slots;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private final long tickMillis;
+    private final int mask;
+    private long currentTick;
+
+    private static final class Node<K> {
+        final K key;
+        long deadlineTick;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * Creates a new timing wheel
+     *
+     * @param slotCount  The number of slots, rounded up to a power of two
+     * @param tickMillis The time covered by a single slot in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int slotCount, long tickMillis) {
+        int size = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.slots = (Node<K>[]) new Node[size];
+        for (int i = 0; i < size; i++) {
+            Node<K> sentinel = new Node<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            slots[i] = sentinel;
+        }
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * Schedules a key to expire at the given time, replacing any previous deadline
+     *
+     * @param key          The key to schedule
+     * @param deadlineMillis The time in milliseconds at which the key expires
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        // Round up so a key is never reported before its deadline has passed
+        long tick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        if (tick <= currentTick) {
+            tick = currentTick + 1;
+        }
+
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        } else {
+            unlink(node);
+        }
+
+        node.deadlineTick = tick;
+        link(slots[(int) (tick & mask)], node);
+    }
+
+    /**
+     * Removes a key from the wheel
+     *
+     * @param key The key to cancel
+     * @return true if the key was scheduled
+     */
+    public synchronized boolean cancel(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Advances the wheel to the given time and removes every key that is due
+     *
+     * @param nowMillis The current time in milliseconds
+     * @return The keys that expired, in no particular order
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        if (targetTick <= currentTick) {
+            return Collections.emptyList();
+        }
+
+        List<K> expired = null;
+        // When we fell behind by more than a full turn, each slot only needs one visit
+        long fromTick = Math.max(currentTick + 1, targetTick - slots.length + 1);
+
+        for (long tick = fromTick; tick <= targetTick; tick++) {
+            Node<K> sentinel = slots[(int) (tick & mask)];
+            Node<K> node = sentinel.next;
+
+            while (node != sentinel) {
+                Node<K> next = node.next;
+                if (node.deadlineTick <= targetTick) {
+                    unlink(node);
+                    nodes.remove(node.key);
+
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(node.key);
+                }
+                node = next;
+            }
+        }
+
+        currentTick = targetTick;
+        return expired != null ? expired : Collections.emptyList();
+    }
+
+    /**
+     * Returns the number of keys currently scheduled
+     *
+     * @return The number of scheduled keys
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Removes every key from the wheel
+     */
+    public synchronized void clear() {
+        for (Node<K> sentinel : slots) {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+        nodes.clear();
+    }
+
+    private static <K> void link(Node<K> sentinel, Node<K> node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private static <K> void unlink(Node<K> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+}
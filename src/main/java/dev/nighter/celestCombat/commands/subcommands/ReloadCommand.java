@@ -23,26 +23,9 @@ public class ReloadCommand extends BaseCommand {
 
         Map<String, String> placeholders = new HashMap<>();
 
+        // Reload config and every component in one place
         plugin.reload();
 
-        // Reload config
-        plugin.reloadConfig();
-        plugin.getLanguageManager().reloadLanguages();
-        plugin.refreshTimeCache();
-
-        if (plugin.getWorldGuardHook() != null) {
-            plugin.getWorldGuardHook().reloadConfig();
-        }
-        if (plugin.getGriefPreventionHook() != null) {
-            plugin.getGriefPreventionHook().reloadConfig();
-        }
-
-        // Reload combat manager configuration
-        plugin.getCombatManager().reloadConfig();
-        plugin.getKillRewardManager().loadConfig();
-        plugin.getNewbieProtectionManager().reloadConfig();
-        plugin.getCombatListeners().reload();
-
         // Send success message
         messageService.sendMessage(sender, "config_reloaded", placeholders);
 
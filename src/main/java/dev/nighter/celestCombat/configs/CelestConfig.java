@@ -0,0 +1,90 @@
+package dev.nighter.celestCombat.configs;
+
+import lombok.Getter;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Typed, immutable snapshot of the settings that are read while the server is running.
+ *
+ * A new snapshot is built on every load or reload and published as a whole, so event
+ * handlers never read the YAML tree and never see a half reloaded config.
+ */
+@Getter
+public final class CelestConfig {
+    // Command blocking while in combat
+    private final boolean commandBlacklistMode;
+    private final List<String> blockedCommands;
+    private final List<String> allowedCommands;
+    private final boolean exemptAdminKick;
+
+    // Item restrictions while in combat
+    private final boolean itemRestrictionsEnabled;
+    private final Set<Material> disabledItems;
+
+    // Death animations
+    private final boolean deathAnimationEnabled;
+    private final boolean deathAnimationOnlyPlayerKill;
+    private final List<String> deathAnimations;
+
+    private CelestConfig(FileConfiguration config) {
+        String blockMode = config.getString("combat.command_block_mode", "whitelist");
+        this.commandBlacklistMode = "blacklist".equalsIgnoreCase(blockMode);
+        this.blockedCommands = List.copyOf(config.getStringList("combat.blocked_commands"));
+        this.allowedCommands = List.copyOf(config.getStringList("combat.allowed_commands"));
+        this.exemptAdminKick = config.getBoolean("combat.exempt_admin_kick", true);
+
+        this.itemRestrictionsEnabled = config.getBoolean("combat.item_restrictions.enabled", true);
+        this.disabledItems = compileMaterials(config.getStringList("combat.item_restrictions.disabled_items"));
+
+        this.deathAnimationEnabled = config.getBoolean("death_animation.enabled", true);
+        this.deathAnimationOnlyPlayerKill = config.getBoolean("death_animation.only_player_kill", true);
+
+        List<String> animations = new ArrayList<>();
+        if (config.getBoolean("death_animation.animation.lightning", true)) {
+            animations.add("lightning");
+        }
+        if (config.getBoolean("death_animation.animation.fire_particles", true)) {
+            animations.add("fire_particles");
+        }
+        this.deathAnimations = List.copyOf(animations);
+    }
+
+    /**
+     * Resolves configured item names to materials once, an entry matches every material
+     * whose name equals it or contains it ("SWORD" covers every sword)
+     */
+    private static Set<Material> compileMaterials(List<String> names) {
+        EnumSet<Material> materials = EnumSet.noneOf(Material.class);
+
+        for (Material material : Material.values()) {
+            if (material.isLegacy()) continue;
+
+            String materialName = material.name();
+            for (String name : names) {
+                if (materialName.equalsIgnoreCase(name) || materialName.contains(name)) {
+                    materials.add(material);
+                    break;
+                }
+            }
+        }
+
+        return Collections.unmodifiableSet(materials);
+    }
+
+    /**
+     * Builds a snapshot from the given config
+     *
+     * @param config The loaded config file
+     * @return A new immutable snapshot
+     */
+    public static CelestConfig load(FileConfiguration config) {
+        return new CelestConfig(config);
+    }
+}
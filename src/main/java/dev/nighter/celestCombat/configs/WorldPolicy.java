@@ -0,0 +1,37 @@
+package dev.nighter.celestCombat.configs;
+
+import dev.nighter.celestCombat.combat.CooldownType;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Every per-world setting of the plugin, compiled once for a single world.
+ * Instances are immutable and replaced as a whole by the {@link WorldPolicyTable}.
+ */
+@Getter
+public final class WorldPolicy {
+    private final boolean blacklisted;
+    private final boolean thirdPartyProtection;
+    private final boolean tridentBanned;
+    private final boolean newbieProtection;
+    private final boolean safezoneProtection;
+    private final boolean claimProtection;
+    @Getter(AccessLevel.NONE)
+    private final boolean[] cooldowns;
+
+    WorldPolicy(boolean blacklisted, boolean thirdPartyProtection, boolean tridentBanned,
+                boolean newbieProtection, boolean safezoneProtection, boolean claimProtection,
+                boolean[] cooldowns) {
+        this.blacklisted = blacklisted;
+        this.thirdPartyProtection = thirdPartyProtection;
+        this.tridentBanned = tridentBanned;
+        this.newbieProtection = newbieProtection;
+        this.safezoneProtection = safezoneProtection;
+        this.claimProtection = claimProtection;
+        this.cooldowns = cooldowns;
+    }
+
+    public boolean isCooldownEnabled(CooldownType type) {
+        return cooldowns[type.ordinal()];
+    }
+}
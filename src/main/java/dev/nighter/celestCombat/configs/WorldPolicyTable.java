@@ -0,0 +1,165 @@
+package dev.nighter.celestCombat.configs;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.combat.CooldownType;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Holds the compiled {@link WorldPolicy} of every loaded world, keyed by world UID.
+ *
+ * The table is an immutable snapshot that is swapped as a whole when a world loads or
+ * unloads and when the config is reloaded, so a world check never touches the config
+ * or compares world names.
+ */
+public class WorldPolicyTable implements Listener {
+    private static final CooldownType[] COOLDOWN_TYPES = CooldownType.values();
+
+    private final CelestCombat plugin;
+    private volatile Map<UUID, WorldPolicy> policies = Map.of();
+
+    // Raw config values the policies are compiled from
+    private Set<String> blacklistedWorlds;
+    private boolean thirdPartyProtectionEnabled;
+    private Set<String> thirdPartyBlacklistedWorlds;
+    private Map<String, Boolean> tridentBannedWorlds;
+    private boolean newbieProtectionEnabled;
+    private Map<String, Boolean> newbieProtectionWorlds;
+    private boolean safezoneProtectionEnabled;
+    private Map<String, Boolean> safezoneProtectionWorlds;
+    private boolean claimProtectionEnabled;
+    private Map<String, Boolean> claimProtectionWorlds;
+    private final boolean[] cooldownsEnabled = new boolean[COOLDOWN_TYPES.length];
+    private final Map<String, Boolean>[] cooldownWorlds;
+
+    @SuppressWarnings("unchecked")
+    public WorldPolicyTable(CelestCombat plugin) {
+        this.plugin = plugin;
+        this.cooldownWorlds = (Map<String, Boolean>[]) new Map[COOLDOWN_TYPES.length];
+        reload();
+    }
+
+    /**
+     * Re-reads every per-world setting from the config and recompiles all loaded worlds
+     */
+    public synchronized void reload() {
+        FileConfiguration config = plugin.getConfig();
+
+        this.blacklistedWorlds = new HashSet<>(config.getStringList("worlds.blacklisted_worlds"));
+
+        if (config.isConfigurationSection("combat.third_party_protection")) {
+            this.thirdPartyProtectionEnabled = config.getBoolean("combat.third_party_protection.enabled", true);
+            this.thirdPartyBlacklistedWorlds = new HashSet<>(config.getStringList("combat.third_party_protection.blacklisted_worlds"));
+        } else {
+            this.thirdPartyProtectionEnabled = config.getBoolean("combat.third_party_protection", true);
+            this.thirdPartyBlacklistedWorlds = Set.of();
+        }
+
+        this.tridentBannedWorlds = loadWorldFlags(config, "trident.banned_worlds", false);
+
+        this.newbieProtectionEnabled = config.getBoolean("newbie_protection.enabled", true);
+        this.newbieProtectionWorlds = loadWorldFlags(config, "newbie_protection.worlds", true);
+
+        this.safezoneProtectionEnabled = config.getBoolean("safezone_protection.enabled", true);
+        this.safezoneProtectionWorlds = loadWorldFlags(config, "safezone_protection.worlds", safezoneProtectionEnabled);
+
+        this.claimProtectionEnabled = config.getBoolean("claim_protection.enabled", true);
+        this.claimProtectionWorlds = loadWorldFlags(config, "claim_protection.worlds", claimProtectionEnabled);
+
+        for (CooldownType type : COOLDOWN_TYPES) {
+            cooldownsEnabled[type.ordinal()] = config.getBoolean(type.getConfigPath() + ".enabled", type.isEnabledByDefault());
+            cooldownWorlds[type.ordinal()] = loadWorldFlags(config, type.getConfigPath() + ".worlds", true);
+        }
+
+        rebuild();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        rebuild();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        rebuild(event.getWorld());
+    }
+
+    /**
+     * Gets the policy of a world
+     *
+     * @param world The world
+     * @return The compiled policy, never null
+     */
+    public WorldPolicy get(World world) {
+        WorldPolicy policy = policies.get(world.getUID());
+        if (policy != null) {
+            return policy;
+        }
+
+        // A world that loaded before our listener saw it, compile it on the spot
+        return compile(world.getName());
+    }
+
+    public WorldPolicy get(Player player) {
+        return get(player.getWorld());
+    }
+
+    private void rebuild() {
+        rebuild(null);
+    }
+
+    private synchronized void rebuild(World unloading) {
+        Map<UUID, WorldPolicy> compiled = new HashMap<>();
+        for (World world : Bukkit.getWorlds()) {
+            if (world.equals(unloading)) continue;
+            compiled.put(world.getUID(), compile(world.getName()));
+        }
+
+        this.policies = Map.copyOf(compiled);
+        plugin.debug("Compiled world policies for " + compiled.size() + " worlds");
+    }
+
+    private WorldPolicy compile(String worldName) {
+        boolean[] cooldowns = new boolean[COOLDOWN_TYPES.length];
+        for (int i = 0; i < cooldowns.length; i++) {
+            cooldowns[i] = cooldownsEnabled[i] && cooldownWorlds[i].getOrDefault(worldName, true);
+        }
+
+        return new WorldPolicy(
+            blacklistedWorlds.contains(worldName),
+            thirdPartyProtectionEnabled && !thirdPartyBlacklistedWorlds.contains(worldName),
+            tridentBannedWorlds.getOrDefault(worldName, false),
+            newbieProtectionEnabled && newbieProtectionWorlds.getOrDefault(worldName, true),
+            safezoneProtectionWorlds.getOrDefault(worldName, safezoneProtectionEnabled),
+            claimProtectionWorlds.getOrDefault(worldName, claimProtectionEnabled),
+            cooldowns
+        );
+    }
+
+    private Map<String, Boolean> loadWorldFlags(FileConfiguration config, String path, boolean defaultValue) {
+        Map<String, Boolean> flags = new HashMap<>();
+
+        ConfigurationSection section = config.getConfigurationSection(path);
+        if (section != null) {
+            for (String worldName : section.getKeys(false)) {
+                flags.put(worldName, section.getBoolean(worldName, defaultValue));
+            }
+        }
+
+        return flags;
+    }
+}
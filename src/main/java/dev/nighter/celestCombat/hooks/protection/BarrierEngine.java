@@ -0,0 +1,482 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.combat.CombatManager;
+import dev.nighter.celestCombat.listeners.MovementConsumer;
+import dev.nighter.celestCombat.session.PlayerSession;
+import dev.nighter.celestCombat.session.SessionManager;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+/**
+ * Keeps combat players out of the areas of every {@link ProtectionProvider}.
+ *
+ * Each player gets one paced border computation covering all providers, run on a barrier
+ * worker, and one barrier set rendered in a single batch. With both WorldGuard and
+ * GriefPrevention installed a player near a safezone and a claim still costs one job and
+ * one packet stream. Each provider keeps its own detection radius, height, material and
+ * push back force, read from its config section.
+ */
+public class BarrierEngine implements Listener, MovementConsumer {
+    private final CelestCombat plugin;
+    private final CombatManager combatManager;
+    private final SessionManager sessionManager;
+
+    // Message cooldown optimization
+    private final long MESSAGE_COOLDOWN = 2000;
+
+    // Visual barrier system - one layer per provider, the barriers each player sees are kept on their session
+    private final BarrierRenderer barrierRenderer = new BarrierRenderer();
+
+    // The registration order is the layer order, the first provider wins where borders overlap
+    private volatile Registration[] registrations = new Registration[0];
+
+    private static final class Registration {
+        final ProtectionProvider provider;
+        volatile Settings settings;
+
+        Registration(ProtectionProvider provider) {
+            this.provider = provider;
+        }
+    }
+
+    private record Settings(int detectionRadius, int height, Material material, double pushBackForce) {
+    }
+
+    /**
+     * The merged barriers of all providers, sorted without duplicates
+     */
+    private record Merged(long[] barriers, byte[] layers, double slack) {
+    }
+
+    public BarrierEngine(CelestCombat plugin, CombatManager combatManager) {
+        this.plugin = plugin;
+        this.combatManager = combatManager;
+        this.sessionManager = plugin.getSessionManager();
+
+        startCleanupTask();
+    }
+
+    /**
+     * Adds a provider, providers are layered in registration order
+     */
+    public synchronized void register(ProtectionProvider provider) {
+        Registration registration = new Registration(provider);
+        registration.settings = loadSettings(provider);
+
+        Registration[] updated = Arrays.copyOf(registrations, registrations.length + 1);
+        updated[updated.length - 1] = registration;
+        this.registrations = updated;
+        updateLayers();
+
+        plugin.debug("Barrier engine: registered " + provider.getName());
+    }
+
+    public boolean hasProviders() {
+        return registrations.length > 0;
+    }
+
+    public synchronized void reloadConfig() {
+        for (Registration registration : registrations) {
+            registration.settings = loadSettings(registration.provider);
+        }
+        updateLayers();
+    }
+
+    private void updateLayers() {
+        List<Material> materials = new ArrayList<>();
+        for (Registration registration : registrations) {
+            materials.add(registration.settings.material());
+        }
+        barrierRenderer.setLayerMaterials(materials);
+    }
+
+    private Settings loadSettings(ProtectionProvider provider) {
+        String section = provider.getConfigSection();
+        return new Settings(
+                plugin.getConfig().getInt(section + ".barrier_detection_radius", 5),
+                plugin.getConfig().getInt(section + ".barrier_height", 3),
+                loadBarrierMaterial(provider),
+                plugin.getConfig().getDouble(section + ".push_back_force", 0.6));
+    }
+
+    @Override
+    public boolean isEnabledInWorld(World world) {
+        if (world == null) return false;
+
+        for (Registration registration : registrations) {
+            if (registration.provider.isEnabledInWorld(world)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onMove(Player player, PlayerSession session, Location from, Location to) {
+        World world = to.getWorld();
+        int generation = 0;
+
+        for (Registration registration : registrations) {
+            ProtectionProvider provider = registration.provider;
+            if (!provider.isEnabledInWorld(world)) continue;
+
+            // If trying to enter a protected area while in combat
+            if (provider.checksEntryOnMove(session)
+                    && !provider.isProtected(player, session, from) && provider.isProtected(player, session, to)) {
+                denyEntry(registration, player, session, from, to);
+                return;
+            }
+            generation += provider.getGeneration(world);
+        }
+
+        // Only recompute once the player may have come in range of a border they don't see
+        if (BarrierPacer.shouldUpdate(session.getBarrierPace(), to, generation)) {
+            updatePlayerBarriers(player, session, from, to);
+        }
+    }
+
+    /**
+     * Pushes a combat player back out of a provider's area, for providers that detect entry themselves
+     *
+     * @param provider The provider whose area the player entered
+     * @param player   The player
+     * @param from     Where the player came from
+     * @param to       Where the player moved to
+     */
+    public void onEntry(ProtectionProvider provider, Player player, Location from, Location to) {
+        if (!provider.isEnabledInWorld(to.getWorld())) return;
+
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null || !combatManager.isInCombat(player)) return;
+
+        for (Registration registration : registrations) {
+            if (registration.provider == provider) {
+                denyEntry(registration, player, session, from, to);
+                return;
+            }
+        }
+    }
+
+    private void denyEntry(Registration registration, Player player, PlayerSession session, Location from, Location to) {
+        pushPlayerBack(player, from, to, registration.settings.pushBackForce());
+        sendCooldownMessage(player, session, registration.provider.getEntryMessageKey());
+
+        // The player is at a border, show it right away
+        updatePlayerBarriers(player, session, from, to);
+    }
+
+    @Override
+    public void release(Player player, PlayerSession session) {
+        removePlayerBarriers(player, session);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPlayerInteract(PlayerInteractEvent event) {
+        Player player = event.getPlayer();
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null || session.getBarriers() == null) return;
+
+        if (!combatManager.isInCombat(player) || !isEnabledInWorld(player.getWorld())) {
+            removePlayerBarriers(player, session);
+            return;
+        }
+
+        if (event.getAction() != Action.RIGHT_CLICK_BLOCK && event.getAction() != Action.LEFT_CLICK_BLOCK) {
+            return;
+        }
+
+        if (event.getClickedBlock() == null) return;
+
+        // Cancel clicks on barriers the player sees and send the barrier again
+        Location blockLoc = event.getClickedBlock().getLocation();
+        if (barrierRenderer.isViewing(session.getIndex(), blockLoc)) {
+            event.setCancelled(true);
+            Scheduler.runTaskLater(() -> barrierRenderer.refresh(player, session.getIndex(), blockLoc), 1L);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (barrierRenderer.isBarrier(event.getBlock().getLocation())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        PlayerSession session = sessionManager.getSession(player);
+        if (session != null) {
+            removePlayerBarriers(player, session);
+        }
+    }
+
+    private void pushPlayerBack(Player player, Location from, Location to, double pushBackForce) {
+        Vector direction = from.toVector().subtract(to.toVector()).normalize();
+        direction.multiply(pushBackForce);
+
+        Location pushLocation = player.getLocation().clone();
+        pushLocation.add(direction);
+        pushLocation.setY(getSafeY(pushLocation));
+        pushLocation.setPitch(player.getLocation().getPitch());
+        pushLocation.setYaw(player.getLocation().getYaw());
+
+        player.setVelocity(direction);
+    }
+
+    private double getSafeY(Location loc) {
+        Block block = loc.getBlock();
+        if (!block.getType().isSolid()) return loc.getY();
+
+        for (int y = 1; y <= 2; y++) {
+            Block above = block.getRelative(0, y, 0);
+            if (!above.getType().isSolid()) {
+                return loc.getBlockY() + y;
+            }
+        }
+
+        for (int y = 1; y <= 2; y++) {
+            Block below = block.getRelative(0, -y, 0);
+            if (!below.getType().isSolid() && !below.getRelative(0, -1, 0).getType().isSolid()) {
+                return loc.getBlockY() - y;
+            }
+        }
+
+        return loc.getY();
+    }
+
+    private void updatePlayerBarriers(Player player, PlayerSession session, Location from, Location to) {
+        if (!combatManager.isInCombat(player)) {
+            removePlayerBarriers(player, session);
+            return;
+        }
+
+        World world = to.getWorld();
+        int x = to.getBlockX(), y = to.getBlockY(), z = to.getBlockZ();
+        int ahead = BarrierPacer.ahead(from, to);
+        double headingX = to.getX() - from.getX(), headingZ = to.getZ() - from.getZ();
+
+        // Every provider reads what it needs here, the border search itself runs on a barrier worker
+        Registration[] current = registrations;
+        Settings[] settings = new Settings[current.length];
+        ProtectionProvider.BorderView[] views = new ProtectionProvider.BorderView[current.length];
+        int generation = 0;
+        boolean enabled = false;
+
+        for (int i = 0; i < current.length; i++) {
+            ProtectionProvider provider = current[i].provider;
+            if (!provider.isEnabledInWorld(world)) continue;
+
+            settings[i] = current[i].settings;
+            generation += provider.getGeneration(world);
+            views[i] = provider.prepareBorders(player, session, world, x, z, y - 2, y + settings[i].height(),
+                    BarrierPacer.searchRadius(settings[i].detectionRadius(), ahead));
+            enabled = true;
+        }
+
+        if (!enabled) {
+            removePlayerBarriers(player, session);
+            return;
+        }
+
+        int computedGeneration = generation;
+        plugin.getBarrierWorker().submit(this, session,
+            () -> findNearbyBarrierLocations(views, settings, x, y, z, headingX, headingZ, ahead),
+            merged -> renderBarriers(session, merged, world, x, y, z, computedGeneration));
+    }
+
+    /**
+     * Collects and plans each provider's borders and merges them into one barrier set, runs off the main thread
+     */
+    private Merged findNearbyBarrierLocations(ProtectionProvider.BorderView[] views, Settings[] settings,
+                                              int x, int y, int z, double headingX, double headingZ, int ahead) {
+        long[] barriers = new long[0];
+        byte[] layers = new byte[0];
+        double slack = Double.MAX_VALUE;
+
+        for (int i = 0; i < views.length; i++) {
+            if (views[i] == null) continue;
+
+            LongStream.Builder borders = LongStream.builder();
+            views[i].collect(borders);
+
+            BarrierPacer.Plan plan = BarrierPacer.plan(borders.build().toArray(), x, z, headingX, headingZ,
+                    settings[i].detectionRadius(), ahead);
+            slack = Math.min(slack, plan.slack());
+
+            Merged merged = merge(barriers, layers, plan.barriers(), (byte) i);
+            barriers = merged.barriers();
+            layers = merged.layers();
+        }
+
+        return new Merged(barriers, layers, slack);
+    }
+
+    /**
+     * Merges a provider's sorted barriers into the ones collected so far, existing layers win on overlap
+     */
+    private static Merged merge(long[] barriers, byte[] layers, long[] added, byte layer) {
+        long[] mergedBarriers = new long[barriers.length + added.length];
+        byte[] mergedLayers = new byte[mergedBarriers.length];
+        int i = 0, j = 0, count = 0;
+
+        while (i < barriers.length || j < added.length) {
+            long key;
+            byte keyLayer;
+            if (j == added.length || (i < barriers.length && barriers[i] <= added[j])) {
+                key = barriers[i];
+                keyLayer = layers[i++];
+            } else {
+                key = added[j++];
+                keyLayer = layer;
+            }
+
+            // Sorted input, so duplicates are next to each other
+            if (count > 0 && mergedBarriers[count - 1] == key) continue;
+            mergedBarriers[count] = key;
+            mergedLayers[count++] = keyLayer;
+        }
+
+        return new Merged(Arrays.copyOf(mergedBarriers, count), Arrays.copyOf(mergedLayers, count), 0);
+    }
+
+    // Runs on the player's thread once the worker is done
+    private void renderBarriers(PlayerSession session, Merged merged, World world, int x, int y, int z, int generation) {
+        Player player = session.getPlayer();
+        if (!player.isOnline()) return;
+
+        // The player may have left combat or the world while the barriers were computed
+        if (!combatManager.isInCombat(player) || !isEnabledInWorld(player.getWorld())) {
+            removePlayerBarriers(player, session);
+            return;
+        }
+
+        session.setBarriers(barrierRenderer.update(player, session.getIndex(), session.getBarriers(),
+                merged.barriers(), merged.layers()));
+        BarrierPacer.computed(session.getBarrierPace(), world, x, y, z, generation, merged.slack());
+    }
+
+    private void removePlayerBarriers(Player player, PlayerSession session) {
+        releaseProviders(session);
+        session.getBarrierPace().reset();
+        BarrierSet barriers = session.getBarriers();
+        session.setBarriers(null);
+        barrierRenderer.clear(player, session.getIndex(), barriers);
+    }
+
+    private void releaseProviders(PlayerSession session) {
+        for (Registration registration : registrations) {
+            registration.provider.release(session);
+        }
+    }
+
+    private void startCleanupTask() {
+        Scheduler.runTaskTimerAsync(this::cleanupPlayerBarriers, 100L, 100L);
+    }
+
+    private void cleanupPlayerBarriers() {
+        for (PlayerSession session : sessionManager.getSessions()) {
+            Player player = session.getPlayer();
+            if (!player.isOnline()) {
+                // Nothing runs on an offline player's thread anymore, so the state can be dropped from here
+                releaseProviders(session);
+                BarrierSet barriers = session.getBarriers();
+                session.setBarriers(null);
+                session.getBarrierPace().reset();
+                barrierRenderer.forget(session.getIndex(), barriers);
+                continue;
+            }
+
+            if (!holdsState(session)
+                    || (combatManager.isInCombat(player) && isEnabledInWorld(player.getWorld()))) {
+                continue;
+            }
+
+            // This task is async and only picks the players, their session is written on their own thread
+            Scheduler.runEntityTask(player, () -> {
+                if (combatManager.isInCombat(player) && isEnabledInWorld(player.getWorld())) return;
+                removePlayerBarriers(player, session);
+            });
+        }
+    }
+
+    /**
+     * Checks whether a player has barriers or provider state left to clean up
+     */
+    private boolean holdsState(PlayerSession session) {
+        if (session.getBarriers() != null) return true;
+
+        // Providers may hold state for players that never saw a barrier
+        for (Registration registration : registrations) {
+            if (registration.provider.holdsState(session)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendCooldownMessage(Player player, PlayerSession session, String messageKey) {
+        long currentTime = System.currentTimeMillis();
+        if (currentTime - session.getBarrierMessageTime() < MESSAGE_COOLDOWN) return;
+        session.setBarrierMessageTime(currentTime);
+
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("player", player.getName());
+        placeholders.put("time", String.valueOf(combatManager.getRemainingCombatTime(player)));
+        plugin.getMessageService().sendMessage(player, messageKey, placeholders);
+    }
+
+    private Material loadBarrierMaterial(ProtectionProvider provider) {
+        Material fallback = provider.getDefaultBarrierMaterial();
+        String materialName = plugin.getConfig().getString(provider.getConfigSection() + ".barrier_material", fallback.name());
+
+        try {
+            Material material = Material.valueOf(materialName.toUpperCase());
+
+            if (!material.isBlock()) {
+                plugin.getLogger().warning("Barrier material '" + materialName + "' is not a valid block material. Using " + fallback.name() + " instead.");
+                return fallback;
+            }
+
+            plugin.debug("Using barrier material: " + material.name() + " for " + provider.getName() + " protection.");
+            return material;
+
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Invalid barrier material '" + materialName + "' in config. Using " + fallback.name() + " instead.");
+            plugin.getLogger().warning("Valid materials can be found at: https://jd.papermc.io/paper/1.21.5/org/bukkit/Material.html");
+            return fallback;
+        }
+    }
+
+    /**
+     * Drops every player's barriers, called on reload and when the plugin is disabled
+     */
+    public void cleanup() {
+        for (PlayerSession session : sessionManager.getSessions()) {
+            releaseProviders(session);
+            session.setBarriers(null);
+            session.getBarrierPace().reset();
+        }
+        barrierRenderer.clearAll();
+    }
+}
@@ -0,0 +1,171 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Arrays;
+
+/**
+ * Decides when a player's barriers have to be computed again.
+ *
+ * Every computation also finds the distance to the nearest border, so the player can move
+ * that far, minus the detection radius, before a border they don't see could come into
+ * range. Players far from any border are not recomputed at all until they used up that
+ * slack, players next to one are recomputed on every block change.
+ *
+ * The search reaches further ahead the faster a player moves, and barriers around the
+ * position they are heading to are shown early, so they render before the player arrives
+ * and has to be pushed back.
+ */
+public final class BarrierPacer {
+    // How far ahead a player's movement is extrapolated
+    private static final int LOOKAHEAD_TICKS = 10;
+    private static final int MAX_AHEAD = 16;
+
+    // Searched beyond the detection radius even when standing still, this is the slack
+    // a player gets when no border is near
+    private static final int PREFETCH_MARGIN = 8;
+
+    // Vertical movement that shifts the searched height enough to matter
+    private static final int MAX_VERTICAL_DRIFT = 2;
+
+    // Anything faster than this per tick is a teleport, not movement
+    private static final double MAX_SPEED = 4.0;
+
+    // Near a border, at most one computation per tick
+    private static final long MIN_INTERVAL = 50;
+
+    /**
+     * A player's pacing for one barrier feature, kept on their session
+     */
+    public static final class State {
+        private volatile World world;
+        private volatile double x, z;
+        private volatile int y;
+        private volatile double slack = -1;
+        private volatile int generation;
+        private volatile long lastSubmit;
+
+        /**
+         * Forces the next move to compute barriers again
+         */
+        public void reset() {
+            slack = -1;
+        }
+    }
+
+    /**
+     * The outcome of a computation: the barriers to show and how far the player may move
+     */
+    public record Plan(long[] barriers, double slack) {
+    }
+
+    private BarrierPacer() {
+    }
+
+    /**
+     * Checks whether a move needs new barriers
+     *
+     * @param state      The player's pacing state
+     * @param to         Where the player moved to
+     * @param generation A counter bumped whenever the protected areas change
+     */
+    public static boolean shouldUpdate(State state, Location to, int generation) {
+        long now = System.currentTimeMillis();
+
+        if (state.slack >= 0 && state.world == to.getWorld() && state.generation == generation) {
+            double dx = to.getX() - state.x;
+            double dz = to.getZ() - state.z;
+            boolean drifted = Math.abs(to.getBlockY() - state.y) >= MAX_VERTICAL_DRIFT;
+            if (!drifted && dx * dx + dz * dz < state.slack * state.slack) {
+                return false;
+            }
+            if (now - state.lastSubmit < MIN_INTERVAL) {
+                return false;
+            }
+        }
+
+        state.lastSubmit = now;
+        return true;
+    }
+
+    /**
+     * Records a finished computation, called when its barriers are rendered
+     *
+     * @param x The block x the computation was made from
+     * @param y The block y the computation was made from
+     * @param z The block z the computation was made from
+     */
+    public static void computed(State state, World world, int x, int y, int z, int generation, double slack) {
+        state.world = world;
+        state.x = x + 0.5;
+        state.y = y;
+        state.z = z + 0.5;
+        state.generation = generation;
+        state.slack = slack;
+    }
+
+    /**
+     * How many blocks ahead the player will be once the lookahead runs out, from the movement of one tick
+     */
+    public static int ahead(Location from, Location to) {
+        double speed = Math.hypot(to.getX() - from.getX(), to.getZ() - from.getZ());
+        if (speed > MAX_SPEED) {
+            return 0;
+        }
+        return Math.min(MAX_AHEAD, (int) Math.ceil(speed * LOOKAHEAD_TICKS));
+    }
+
+    /**
+     * The horizontal radius to collect borders in
+     */
+    public static int searchRadius(int detectionRadius, int ahead) {
+        return detectionRadius + PREFETCH_MARGIN + ahead;
+    }
+
+    /**
+     * Picks the barriers to show from the borders found around a player
+     *
+     * @param borders         Packed border blocks within the search radius, in any order
+     * @param x               The player's block x
+     * @param z               The player's block z
+     * @param headingX        The x movement of the player's last tick
+     * @param headingZ        The z movement of the player's last tick
+     * @param detectionRadius The configured barrier radius
+     * @param ahead           The distance from {@link #ahead(Location, Location)}
+     */
+    public static Plan plan(long[] borders, int x, int z, double headingX, double headingZ, int detectionRadius, int ahead) {
+        // Where the player is heading, barriers around it are shown early
+        double length = Math.hypot(headingX, headingZ);
+        int aheadX = x, aheadZ = z;
+        if (ahead > 0 && length > 0) {
+            aheadX += (int) Math.round(headingX / length * ahead);
+            aheadZ += (int) Math.round(headingZ / length * ahead);
+        }
+
+        int radiusSquared = detectionRadius * detectionRadius;
+        long nearestSquared = Long.MAX_VALUE;
+        long[] barriers = new long[borders.length];
+        int count = 0;
+
+        for (long block : borders) {
+            int bx = BlockKeys.x(block), bz = BlockKeys.z(block);
+            long distanceSquared = (long) (bx - x) * (bx - x) + (long) (bz - z) * (bz - z);
+            nearestSquared = Math.min(nearestSquared, distanceSquared);
+
+            long aheadSquared = (long) (bx - aheadX) * (bx - aheadX) + (long) (bz - aheadZ) * (bz - aheadZ);
+            if (distanceSquared <= radiusSquared || aheadSquared <= radiusSquared) {
+                barriers[count++] = block;
+            }
+        }
+
+        // Nothing found means nothing within the search radius
+        double nearest = nearestSquared == Long.MAX_VALUE ? searchRadius(detectionRadius, ahead) : Math.sqrt(nearestSquared);
+        // One block off for rounding the player's position to a block
+        double slack = Math.max(0, nearest - detectionRadius - 1);
+
+        barriers = Arrays.copyOf(barriers, count);
+        Arrays.sort(barriers);
+        return new Plan(barriers, slack);
+    }
+}
@@ -0,0 +1,257 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import io.papermc.paper.math.Position;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shows fake barrier blocks to players and restores the real blocks afterwards.
+ *
+ * Every update diffs the barriers a player sees against the wanted ones and sends all
+ * changes in one multi block change, which the server splits into a single packet per
+ * chunk section. Block data is created once per material and shared between updates.
+ *
+ * Shown barriers are kept per world in a map keyed by packed block coordinates, each
+ * holding the real block type and the session indices of the players seeing it.
+ *
+ * Barriers are drawn in layers, one per protection provider, each with its own material.
+ * A block keeps the layer it was first shown with until nobody sees it anymore.
+ */
+public class BarrierRenderer {
+    private final Map<UUID, LongObjectMap<BarrierBlock>> worlds = new ConcurrentHashMap<>();
+
+    private final Map<Material, BlockData> blockDataCache = new ConcurrentHashMap<>();
+    private volatile BlockData[] layerData = new BlockData[0];
+
+    /**
+     * A shown barrier: the real block behind it and who is seeing it
+     */
+    private static final class BarrierBlock {
+        final Material original;
+        final byte layer;
+        int[] viewers = new int[2];
+        int viewerCount;
+
+        BarrierBlock(Material original, byte layer) {
+            this.original = original;
+            this.layer = layer;
+        }
+
+        void add(int viewer) {
+            if (contains(viewer)) return;
+            if (viewerCount == viewers.length) {
+                viewers = Arrays.copyOf(viewers, viewerCount * 2);
+            }
+            viewers[viewerCount++] = viewer;
+        }
+
+        void remove(int viewer) {
+            for (int i = 0; i < viewerCount; i++) {
+                if (viewers[i] == viewer) {
+                    viewers[i] = viewers[--viewerCount];
+                    return;
+                }
+            }
+        }
+
+        boolean contains(int viewer) {
+            for (int i = 0; i < viewerCount; i++) {
+                if (viewers[i] == viewer) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sets the material of every layer, indexed by layer
+     */
+    public void setLayerMaterials(List<Material> materials) {
+        BlockData[] data = new BlockData[materials.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = blockData(materials.get(i));
+        }
+        this.layerData = data;
+    }
+
+    /**
+     * Moves a player from the barriers they see to the wanted ones in one batched update
+     *
+     * @param player  The player
+     * @param viewer  The player's session index
+     * @param shown   The barriers the player sees now, may be null
+     * @param wanted  The packed block keys the player should see, sorted without duplicates
+     * @param layers  The layer of each wanted key
+     * @return The barriers the player sees after the update, null if none
+     */
+    public BarrierSet update(Player player, int viewer, BarrierSet shown, long[] wanted, byte[] layers) {
+        World world = player.getWorld();
+        Map<Position, BlockData> changes = new HashMap<>();
+        long[] result = new long[wanted.length];
+        int resultCount = 0;
+
+        if (shown != null && !shown.getWorld().equals(world)) {
+            // The client dropped the old world's fake blocks on its own
+            hideAll(shown, viewer, null);
+            shown = null;
+        }
+
+        long[] current = shown != null ? shown.blocks() : new long[0];
+        LongObjectMap<BarrierBlock> blocks = blocks(world);
+
+        synchronized (blocks) {
+            // Both arrays are sorted, so one merge pass finds what to hide, show and keep
+            int i = 0, j = 0;
+            while (i < current.length || j < wanted.length) {
+                if (j == wanted.length || (i < current.length && current[i] < wanted[j])) {
+                    hide(blocks, current[i++], viewer, changes);
+                } else if (i == current.length || wanted[j] < current[i]) {
+                    long key = wanted[j];
+                    if (show(world, blocks, key, layers[j], viewer, changes)) {
+                        result[resultCount++] = key;
+                    }
+                    j++;
+                } else {
+                    result[resultCount++] = current[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        send(player, changes);
+        return resultCount == 0 ? null : new BarrierSet(world, Arrays.copyOf(result, resultCount));
+    }
+
+    /**
+     * Restores every barrier a player sees
+     */
+    public void clear(Player player, int viewer, BarrierSet shown) {
+        if (shown == null) return;
+
+        if (!shown.getWorld().equals(player.getWorld())) {
+            hideAll(shown, viewer, null);
+            return;
+        }
+
+        Map<Position, BlockData> changes = new HashMap<>();
+        hideAll(shown, viewer, changes);
+        send(player, changes);
+    }
+
+    /**
+     * Drops the barriers of a player that is no longer online, nothing is sent
+     */
+    public void forget(int viewer, BarrierSet shown) {
+        if (shown != null) {
+            hideAll(shown, viewer, null);
+        }
+    }
+
+    /**
+     * Checks whether a player sees a barrier at a block
+     */
+    public boolean isViewing(int viewer, Location loc) {
+        LongObjectMap<BarrierBlock> blocks = worlds.get(loc.getWorld().getUID());
+        if (blocks == null) return false;
+
+        synchronized (blocks) {
+            BarrierBlock block = blocks.get(BlockKeys.pack(loc));
+            return block != null && block.contains(viewer);
+        }
+    }
+
+    /**
+     * Re-sends a single barrier the player sees, used after the client changed it locally
+     */
+    public void refresh(Player player, int viewer, Location loc) {
+        LongObjectMap<BarrierBlock> blocks = worlds.get(loc.getWorld().getUID());
+        if (blocks == null) return;
+
+        BlockData data;
+        synchronized (blocks) {
+            BarrierBlock block = blocks.get(BlockKeys.pack(loc));
+            if (block == null || !block.contains(viewer)) return;
+            data = layerData[block.layer];
+        }
+        player.sendBlockChange(loc, data);
+    }
+
+    public boolean isBarrier(Location loc) {
+        LongObjectMap<BarrierBlock> blocks = worlds.get(loc.getWorld().getUID());
+        if (blocks == null) return false;
+
+        synchronized (blocks) {
+            return blocks.get(BlockKeys.pack(loc)) != null;
+        }
+    }
+
+    public void clearAll() {
+        worlds.clear();
+    }
+
+    private void hideAll(BarrierSet shown, int viewer, Map<Position, BlockData> changes) {
+        LongObjectMap<BarrierBlock> blocks = blocks(shown.getWorld());
+        synchronized (blocks) {
+            for (long key : shown.blocks()) {
+                hide(blocks, key, viewer, changes);
+            }
+        }
+    }
+
+    private boolean show(World world, LongObjectMap<BarrierBlock> blocks, long key, byte layer, int viewer, Map<Position, BlockData> changes) {
+        BarrierBlock block = blocks.get(key);
+        if (block == null) {
+            Material type = world.getBlockAt(BlockKeys.x(key), BlockKeys.y(key), BlockKeys.z(key)).getType();
+
+            // Only replace air and other blocks the player can walk through
+            if (type != Material.AIR && type.isSolid()) {
+                return false;
+            }
+
+            block = new BarrierBlock(type, layer);
+            blocks.put(key, block);
+        }
+
+        block.add(viewer);
+        changes.put(Position.block(BlockKeys.x(key), BlockKeys.y(key), BlockKeys.z(key)), layerData[block.layer]);
+        return true;
+    }
+
+    private void hide(LongObjectMap<BarrierBlock> blocks, long key, int viewer, Map<Position, BlockData> changes) {
+        BarrierBlock block = blocks.get(key);
+        if (block == null) return;
+
+        block.remove(viewer);
+        if (block.viewerCount == 0) {
+            blocks.remove(key);
+        }
+
+        if (changes != null) {
+            changes.put(Position.block(BlockKeys.x(key), BlockKeys.y(key), BlockKeys.z(key)), blockData(block.original));
+        }
+    }
+
+    private LongObjectMap<BarrierBlock> blocks(World world) {
+        return worlds.computeIfAbsent(world.getUID(), uid -> new LongObjectMap<>(256));
+    }
+
+    private void send(Player player, Map<Position, BlockData> changes) {
+        if (!changes.isEmpty() && player.isOnline()) {
+            player.sendMultiBlockChange(changes);
+        }
+    }
+
+    private BlockData blockData(Material material) {
+        return blockDataCache.computeIfAbsent(material, Material::createBlockData);
+    }
+}
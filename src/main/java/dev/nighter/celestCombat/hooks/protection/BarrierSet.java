@@ -0,0 +1,35 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import org.bukkit.World;
+
+import java.util.Arrays;
+
+/**
+ * The barrier blocks one player sees, as sorted packed block keys in a single world.
+ * Instances are immutable, every update replaces the set on the player's session.
+ */
+public final class BarrierSet {
+    private final World world;
+    private final long[] blocks;
+
+    BarrierSet(World world, long[] blocks) {
+        this.world = world;
+        this.blocks = blocks;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    long[] blocks() {
+        return blocks;
+    }
+
+    public int size() {
+        return blocks.length;
+    }
+
+    public boolean contains(World world, long key) {
+        return this.world.equals(world) && Arrays.binarySearch(blocks, key) >= 0;
+    }
+}
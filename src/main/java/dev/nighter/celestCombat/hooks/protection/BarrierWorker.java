@@ -0,0 +1,110 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.session.PlayerSession;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Computes barrier positions on a small pool of worker threads.
+ *
+ * Jobs are coalesced per player and owner: while one is running, newer submissions replace
+ * the pending one, so a player moving quickly only ever has the latest position computed
+ * and never two jobs at once. Results are rendered on the player's own thread through the
+ * entity scheduler, so packets and block reads stay on the thread that owns the player.
+ */
+public class BarrierWorker {
+    private final CelestCombat plugin;
+    private final ExecutorService executor;
+    private final Map<JobKey, Slot> slots = new HashMap<>();
+
+    private record JobKey(Object owner, PlayerSession session) {
+    }
+
+    private static final class Slot {
+        Runnable pending;
+        boolean running;
+    }
+
+    public BarrierWorker(CelestCombat plugin) {
+        this.plugin = plugin;
+
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "CelestCombat Barrier Worker #" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a barrier computation for a player
+     *
+     * @param owner   The feature submitting the job, each owner has its own queue per player
+     * @param session The player's session
+     * @param compute Runs on a worker thread, must only read thread safe snapshots
+     * @param render  Receives the result on the player's thread
+     */
+    public <T> void submit(Object owner, PlayerSession session, Supplier<T> compute, Consumer<T> render) {
+        Runnable job = () -> {
+            T result = compute.get();
+            Scheduler.runEntityTask(session.getPlayer(), () -> render.accept(result));
+        };
+
+        JobKey key = new JobKey(owner, session);
+        Slot slot;
+        synchronized (slots) {
+            slot = slots.computeIfAbsent(key, k -> new Slot());
+            slot.pending = job;
+            if (slot.running) return;
+            slot.running = true;
+        }
+
+        try {
+            executor.execute(() -> drain(key, slot));
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the barriers are cleared anyway
+            synchronized (slots) {
+                slots.remove(key);
+            }
+        }
+    }
+
+    private void drain(JobKey key, Slot slot) {
+        while (true) {
+            Runnable job;
+            synchronized (slots) {
+                job = slot.pending;
+                slot.pending = null;
+                if (job == null) {
+                    slot.running = false;
+                    slots.remove(key);
+                    return;
+                }
+            }
+
+            try {
+                job.run();
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Error computing barriers", e);
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (slots) {
+            slots.clear();
+        }
+    }
+}
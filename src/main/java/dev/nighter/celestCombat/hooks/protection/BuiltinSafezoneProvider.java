@@ -0,0 +1,236 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.session.PlayerSession;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Safezones defined in the plugin's own safezones.yml, for servers without WorldGuard.
+ *
+ * The regions of each world are packed into a {@link RegionTree} when the file is loaded,
+ * so lookups never leave the plugin. The trees are immutable and replaced as a whole on
+ * reload, any thread can read them.
+ */
+public class BuiltinSafezoneProvider implements ProtectionProvider {
+    private static final String FILE_NAME = "safezones.yml";
+
+    private final CelestCombat plugin;
+
+    // World name to the safezones in it, worlds without safezones are absent
+    private volatile Map<String, RegionTree> worlds = new HashMap<>();
+
+    // Bumped on every reload, so computed barriers can tell they are stale
+    private volatile int generation;
+
+    public BuiltinSafezoneProvider(CelestCombat plugin) {
+        this.plugin = plugin;
+        reload();
+    }
+
+    /**
+     * Reads safezones.yml again, creating it with examples if it is missing.
+     * Drops every safezone when builtin_safezones is switched off.
+     */
+    public void reload() {
+        if (!plugin.getConfig().getBoolean("builtin_safezones.enabled", false)) {
+            this.worlds = new HashMap<>();
+            generation++;
+            plugin.debug("Built-in safezones are disabled in config");
+            return;
+        }
+
+        File file = new File(plugin.getDataFolder(), FILE_NAME);
+        if (!file.exists()) {
+            plugin.saveResource(FILE_NAME, false);
+        }
+
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        ConfigurationSection zones = config.getConfigurationSection("zones");
+
+        Map<String, List<SafezoneRegion>> regionsByWorld = new HashMap<>();
+        int loadedCount = 0;
+        if (zones != null) {
+            for (String name : zones.getKeys(false)) {
+                ConfigurationSection section = zones.getConfigurationSection(name);
+                if (section == null) continue;
+
+                String worldName = section.getString("world");
+                if (worldName == null) {
+                    plugin.getLogger().warning("Skipping safezone '" + name + "' in " + FILE_NAME + ": no world set");
+                    continue;
+                }
+
+                try {
+                    SafezoneRegion region = SafezoneRegion.load(name, section);
+                    regionsByWorld.computeIfAbsent(worldName, world -> new ArrayList<>()).add(region);
+                    loadedCount++;
+                } catch (IllegalArgumentException e) {
+                    plugin.getLogger().warning("Skipping safezone '" + name + "' in " + FILE_NAME + ": " + e.getMessage());
+                }
+            }
+        }
+
+        Map<String, RegionTree> trees = new HashMap<>();
+        regionsByWorld.forEach((worldName, regions) -> trees.put(worldName, new RegionTree(regions)));
+        this.worlds = trees;
+        generation++;
+
+        plugin.getLogger().info("Loaded " + loadedCount + " built-in safezones");
+    }
+
+    @Override
+    public String getName() {
+        return "built-in safezone";
+    }
+
+    @Override
+    public String getConfigSection() {
+        return "builtin_safezones";
+    }
+
+    @Override
+    public Material getDefaultBarrierMaterial() {
+        return Material.RED_STAINED_GLASS;
+    }
+
+    @Override
+    public String getEntryMessageKey() {
+        return "combat_no_safezone_entry";
+    }
+
+    @Override
+    public boolean isEnabledInWorld(World world) {
+        return world != null && worlds.containsKey(world.getName());
+    }
+
+    @Override
+    public int getGeneration(World world) {
+        return generation;
+    }
+
+    @Override
+    public boolean isProtected(Player player, PlayerSession session, Location location) {
+        return isSafeZone(location);
+    }
+
+    public boolean isSafeZone(Location location) {
+        if (location == null || location.getWorld() == null) return false;
+
+        RegionTree tree = worlds.get(location.getWorld().getName());
+        return tree != null && tree.find(location.getBlockX(), location.getBlockY(), location.getBlockZ()) != null;
+    }
+
+    @Override
+    public BorderView prepareBorders(Player player, PlayerSession session, World world, int x, int z,
+                                     int minY, int maxY, int radius) {
+        RegionTree tree = worlds.get(world.getName());
+        if (tree == null) {
+            return out -> { };
+        }
+        return out -> findNearbyBarrierLocations(tree, x, z, minY, maxY, radius, out);
+    }
+
+    /**
+     * Finds safezone borders in a radius around the player, runs off the main thread.
+     *
+     * A block is a border when it is in a safezone and one of its horizontal neighbours is
+     * not, so touching or overlapping safezones get no wall between them. Such a block is
+     * always on the outline of one of the regions, so only outline columns are tested.
+     */
+    private static void findNearbyBarrierLocations(RegionTree tree, int centerX, int centerZ, int minY, int maxY,
+                                                   int radius, LongConsumer out) {
+        // One block further than the radius, the border test looks at neighbours
+        SafezoneRegion[] nearby = tree.query(centerX - radius - 1, centerZ - radius - 1,
+                centerX + radius + 1, centerZ + radius + 1);
+        if (nearby.length == 0) return;
+
+        OutlineColumns columns = new OutlineColumns(centerX, centerZ, radius);
+        for (SafezoneRegion region : nearby) {
+            region.addOutline(columns.minX, columns.minZ, columns.maxX, columns.maxZ, columns);
+        }
+
+        for (int c = 0; c < columns.count; c++) {
+            int x = columns.xs[c], z = columns.zs[c];
+            for (int y = minY; y <= maxY; y++) {
+                if (isBorderLocation(nearby, x, y, z)) {
+                    out.accept(BlockKeys.pack(x, y, z));
+                }
+            }
+        }
+    }
+
+    private static boolean isBorderLocation(SafezoneRegion[] regions, int x, int y, int z) {
+        if (!isSafeZone(regions, x, y, z)) {
+            return false;
+        }
+
+        return !isSafeZone(regions, x + 1, y, z) || !isSafeZone(regions, x - 1, y, z)
+                || !isSafeZone(regions, x, y, z + 1) || !isSafeZone(regions, x, y, z - 1);
+    }
+
+    private static boolean isSafeZone(SafezoneRegion[] regions, int x, int y, int z) {
+        for (SafezoneRegion region : regions) {
+            if (region.contains(x, y, z)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The distinct outline columns within a circle around the player
+     */
+    private static final class OutlineColumns implements SafezoneRegion.ColumnConsumer {
+        final int centerX, centerZ, radiusSquared;
+        final int minX, minZ, maxX, maxZ, depth;
+        final boolean[] marked;
+        int[] xs = new int[64];
+        int[] zs = new int[64];
+        int count;
+
+        OutlineColumns(int centerX, int centerZ, int radius) {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radiusSquared = radius * radius;
+            this.minX = centerX - radius;
+            this.minZ = centerZ - radius;
+            this.maxX = centerX + radius;
+            this.maxZ = centerZ + radius;
+            this.depth = maxZ - minZ + 1;
+            this.marked = new boolean[(maxX - minX + 1) * depth];
+        }
+
+        @Override
+        public void accept(int x, int z) {
+            if (x < minX || x > maxX || z < minZ || z > maxZ) return;
+
+            int dx = x - centerX, dz = z - centerZ;
+            if (dx * dx + dz * dz > radiusSquared) return;
+
+            int cell = (x - minX) * depth + (z - minZ);
+            if (marked[cell]) return;
+            marked[cell] = true;
+
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                zs = Arrays.copyOf(zs, count * 2);
+            }
+            xs[count] = x;
+            zs[count] = z;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.Scheduler;
+import me.ryanhamshire.GriefPrevention.Claim;
+import me.ryanhamshire.GriefPrevention.GriefPrevention;
+import me.ryanhamshire.GriefPrevention.events.ClaimChangeEvent;
+import me.ryanhamshire.GriefPrevention.events.ClaimCreatedEvent;
+import me.ryanhamshire.GriefPrevention.events.ClaimDeletedEvent;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A local copy of the GriefPrevention claim rectangles, bucketed per chunk.
+ *
+ * Each chunk holds the top level claims overlapping it, each with its subdivisions, so a
+ * lookup is one map read and a few bound checks with no call into the data store and no
+ * allocation. The buckets are re-read from the data store for the chunks a claim covers
+ * whenever a claim is created, changed or deleted. The events fire before the data store
+ * applies the change, so the re-read is deferred by a tick.
+ */
+public class ClaimIndex implements Listener {
+    private final CelestCombat plugin;
+    private final Map<UUID, WorldClaims> worlds = new ConcurrentHashMap<>();
+    private static final ClaimEntry[] NO_CLAIMS = new ClaimEntry[0];
+
+    // Bumped on every change, so cached results can tell they are stale
+    private volatile int generation;
+
+    /**
+     * An immutable copy of a claim's bounds, claims extend from their lesser corner up to the build limit
+     */
+    public static final class ClaimEntry {
+        private final Claim claim;
+        private final int minX, minZ, maxX, maxZ, minY;
+        private final ClaimEntry[] children;
+
+        private ClaimEntry(Claim claim) {
+            Location lesser = claim.getLesserBoundaryCorner();
+            Location greater = claim.getGreaterBoundaryCorner();
+            this.claim = claim;
+            this.minX = lesser.getBlockX();
+            this.minZ = lesser.getBlockZ();
+            this.maxX = greater.getBlockX();
+            this.maxZ = greater.getBlockZ();
+            this.minY = lesser.getBlockY();
+
+            ClaimEntry[] children = new ClaimEntry[claim.children.size()];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = new ClaimEntry(claim.children.get(i));
+            }
+            this.children = children;
+        }
+
+        public Claim getClaim() {
+            return claim;
+        }
+
+        public int getMinX() {
+            return minX;
+        }
+
+        public int getMinZ() {
+            return minZ;
+        }
+
+        public int getMaxX() {
+            return maxX;
+        }
+
+        public int getMaxZ() {
+            return maxZ;
+        }
+
+        public int getMinY() {
+            return minY;
+        }
+
+        public ClaimEntry[] getChildren() {
+            return children;
+        }
+
+        public boolean contains(int x, int y, int z) {
+            return x >= minX && x <= maxX && z >= minZ && z <= maxZ && y >= minY;
+        }
+
+        boolean overlaps(int minX, int minZ, int maxX, int maxZ) {
+            return this.minX <= maxX && this.maxX >= minX && this.minZ <= maxZ && this.maxZ >= minZ;
+        }
+    }
+
+    private static final class WorldClaims {
+        final LongObjectMap<ClaimEntry[]> chunks = new LongObjectMap<>(256);
+        final StampedLock lock = new StampedLock();
+
+        ClaimEntry[] get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            ClaimEntry[] claims = chunks.get(key);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    claims = chunks.get(key);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return claims != null ? claims : NO_CLAIMS;
+        }
+    }
+
+    public ClaimIndex(CelestCombat plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Finds the claim at a block, the subdivision if the block is in one
+     *
+     * @return The claim, or null if the block is not claimed
+     */
+    public Claim getClaimAt(World world, int x, int y, int z) {
+        WorldClaims claims = worlds.get(world.getUID());
+        if (claims == null) return null;
+
+        for (ClaimEntry entry : claims.get(chunkKey(x >> 4, z >> 4))) {
+            if (!entry.contains(x, y, z)) continue;
+
+            for (ClaimEntry child : entry.children) {
+                if (child.contains(x, y, z)) {
+                    return child.claim;
+                }
+            }
+            return entry.claim;
+        }
+        return null;
+    }
+
+    public Claim getClaimAt(Location location) {
+        if (location == null || location.getWorld() == null) return null;
+        return getClaimAt(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Collects the top level claims overlapping an area
+     */
+    public Collection<ClaimEntry> getClaimsIn(World world, int minX, int minZ, int maxX, int maxZ) {
+        WorldClaims claims = worlds.get(world.getUID());
+        if (claims == null) return Collections.emptySet();
+
+        Set<ClaimEntry> found = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                for (ClaimEntry entry : claims.get(chunkKey(chunkX, chunkZ))) {
+                    if (entry.overlaps(minX, minZ, maxX, maxZ)) {
+                        found.add(entry);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drops everything and copies all claims from the data store again
+     */
+    public void rebuild() {
+        worlds.clear();
+        generation++;
+
+        Map<Claim, ClaimEntry> entries = new IdentityHashMap<>();
+        for (Claim claim : GriefPrevention.instance.dataStore.getClaims()) {
+            if (claim.parent != null || !claim.inDataStore) continue;
+
+            World world = claim.getLesserBoundaryCorner().getWorld();
+            if (world == null) continue;
+
+            ClaimEntry entry = entries.computeIfAbsent(claim, ClaimEntry::new);
+            WorldClaims claims = worlds.computeIfAbsent(world.getUID(), uid -> new WorldClaims());
+            long stamp = claims.lock.writeLock();
+            try {
+                for (int chunkX = entry.minX >> 4; chunkX <= entry.maxX >> 4; chunkX++) {
+                    for (int chunkZ = entry.minZ >> 4; chunkZ <= entry.maxZ >> 4; chunkZ++) {
+                        long key = chunkKey(chunkX, chunkZ);
+                        ClaimEntry[] bucket = claims.chunks.get(key);
+                        claims.chunks.put(key, append(bucket, entry));
+                    }
+                }
+            } finally {
+                claims.lock.unlockWrite(stamp);
+            }
+        }
+
+        plugin.debug("Claim index: loaded " + entries.size() + " claims");
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClaimCreated(ClaimCreatedEvent event) {
+        scheduleRefresh(event.getClaim());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClaimChange(ClaimChangeEvent event) {
+        scheduleRefresh(event.getFrom());
+        scheduleRefresh(event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClaimDeleted(ClaimDeletedEvent event) {
+        scheduleRefresh(event.getClaim());
+    }
+
+    private void scheduleRefresh(Claim claim) {
+        // Subdivisions live in their top-level claim's entry, which is replaced in every bucket it covers
+        Claim topLevel = claim;
+        while (topLevel.parent != null) {
+            topLevel = topLevel.parent;
+        }
+        Location lesser = topLevel.getLesserBoundaryCorner();
+        Location greater = topLevel.getGreaterBoundaryCorner();
+        World world = lesser.getWorld();
+        if (world == null) return;
+
+        int minChunkX = lesser.getBlockX() >> 4, maxChunkX = greater.getBlockX() >> 4;
+        int minChunkZ = lesser.getBlockZ() >> 4, maxChunkZ = greater.getBlockZ() >> 4;
+        generation++;
+        Scheduler.runTask(() -> refresh(world, minChunkX, minChunkZ, maxChunkX, maxChunkZ));
+    }
+
+    /**
+     * Copies the buckets of a chunk area from the data store
+     */
+    private void refresh(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        WorldClaims claims = worlds.computeIfAbsent(world.getUID(), uid -> new WorldClaims());
+        Map<Claim, ClaimEntry> entries = new IdentityHashMap<>();
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                ClaimEntry[] bucket = NO_CLAIMS;
+                for (Claim claim : GriefPrevention.instance.dataStore.getClaims(chunkX, chunkZ)) {
+                    if (claim.parent != null || !claim.inDataStore) continue;
+                    bucket = append(bucket, entries.computeIfAbsent(claim, ClaimEntry::new));
+                }
+
+                long key = chunkKey(chunkX, chunkZ);
+                long stamp = claims.lock.writeLock();
+                try {
+                    if (bucket.length == 0) {
+                        claims.chunks.remove(key);
+                    } else {
+                        claims.chunks.put(key, bucket);
+                    }
+                } finally {
+                    claims.lock.unlockWrite(stamp);
+                }
+            }
+        }
+
+        generation++;
+    }
+
+    private static ClaimEntry[] append(ClaimEntry[] bucket, ClaimEntry entry) {
+        if (bucket == null || bucket.length == 0) {
+            return new ClaimEntry[]{entry};
+        }
+        ClaimEntry[] grown = new ClaimEntry[bucket.length + 1];
+        System.arraycopy(bucket, 0, grown, 0, bucket.length);
+        grown[bucket.length] = entry;
+        return grown;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public void clear() {
+        worlds.clear();
+        generation++;
+    }
+}
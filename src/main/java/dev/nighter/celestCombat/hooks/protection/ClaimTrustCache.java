@@ -0,0 +1,150 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.session.PlayerSession;
+import me.ryanhamshire.GriefPrevention.Claim;
+import me.ryanhamshire.GriefPrevention.ClaimPermission;
+import me.ryanhamshire.GriefPrevention.events.ClaimChangeEvent;
+import me.ryanhamshire.GriefPrevention.events.ClaimDeletedEvent;
+import me.ryanhamshire.GriefPrevention.events.ClaimTransferEvent;
+import me.ryanhamshire.GriefPrevention.events.TrustChangedEvent;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.Arrays;
+
+/**
+ * Caches GriefPrevention permission results per claim and player.
+ *
+ * Each player's session keeps a small table from claim id to a bitmask with two bits per
+ * permission level, one for "checked" and one for "denied", so any number of blocks in the
+ * same claim share one result. All tables are dropped when trust or claims change, and
+ * entries expire after a few seconds for permission changes GriefPrevention has no event for.
+ */
+public class ClaimTrustCache implements Listener {
+    private static final long MAX_AGE = 10000;
+    private static final int MAX_CLAIMS = 64;
+
+    // Denied bits sit above the checked bits
+    private static final int DENIED_SHIFT = 16;
+
+    private volatile int generation;
+
+    /**
+     * One player's cached results, kept on their session
+     */
+    public static final class Table {
+        private long[] claimIds = new long[8];
+        private int[] masks = new int[8];
+        private int size;
+        private int generation;
+        private long createdAt;
+
+        private synchronized int get(long claimId, int generation, long now) {
+            if (this.generation != generation || now - createdAt > MAX_AGE) {
+                size = 0;
+                this.generation = generation;
+                createdAt = now;
+                return 0;
+            }
+
+            for (int i = 0; i < size; i++) {
+                if (claimIds[i] == claimId) {
+                    return masks[i];
+                }
+            }
+            return 0;
+        }
+
+        private synchronized void put(long claimId, int generation, int bits) {
+            if (this.generation != generation) return;
+
+            for (int i = 0; i < size; i++) {
+                if (claimIds[i] == claimId) {
+                    masks[i] |= bits;
+                    return;
+                }
+            }
+
+            if (size == MAX_CLAIMS) {
+                size = 0;
+            } else if (size == claimIds.length) {
+                claimIds = Arrays.copyOf(claimIds, size * 2);
+                masks = Arrays.copyOf(masks, size * 2);
+            }
+            claimIds[size] = claimId;
+            masks[size] = bits;
+            size++;
+        }
+    }
+
+    /**
+     * Checks whether a player lacks a permission in a claim
+     *
+     * @param session    The player's session
+     * @param player     The player
+     * @param claim      The claim, a subdivision resolves on its own
+     * @param permission The required permission
+     * @return true if GriefPrevention denies the permission
+     */
+    public boolean isDenied(PlayerSession session, Player player, Claim claim, ClaimPermission permission) {
+        Long claimId = claim.getID();
+        if (claimId == null) {
+            // Not saved yet, nothing to key it by
+            return claim.checkPermission(player, permission, null) != null;
+        }
+
+        int checkedBit = 1 << permission.ordinal();
+        int deniedBit = checkedBit << DENIED_SHIFT;
+        int generation = this.generation;
+        Table table = session.getClaimTrust();
+
+        int mask = table.get(claimId, generation, System.currentTimeMillis());
+        if ((mask & checkedBit) != 0) {
+            return (mask & deniedBit) != 0;
+        }
+
+        boolean denied = claim.checkPermission(player, permission, null) != null;
+        table.put(claimId, generation, checkedBit | (denied ? deniedBit : 0));
+        return denied;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTrustChanged(TrustChangedEvent event) {
+        invalidateAroundChange();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClaimTransfer(ClaimTransferEvent event) {
+        invalidateAroundChange();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClaimChange(ClaimChangeEvent event) {
+        invalidateAroundChange();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClaimDeleted(ClaimDeletedEvent event) {
+        invalidateAroundChange();
+    }
+
+    // The events fire before GriefPrevention applies the change, results cached in between go too
+    private void invalidateAroundChange() {
+        invalidate();
+        Scheduler.runTask(this::invalidate);
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drops every cached result
+     */
+    public void invalidate() {
+        generation++;
+    }
+}
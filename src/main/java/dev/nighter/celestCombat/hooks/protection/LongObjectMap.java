@@ -0,0 +1,222 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * An open addressing hash map with primitive long keys.
+ *
+ * Lookups never box the key or allocate. Collisions are resolved by linear probing and
+ * removal shifts the following entries back, so the table never fills up with tombstones.
+ * The map is not thread safe, callers guard it themselves.
+ *
+ * @param <V> The type of values stored in this map
+ */
+public class LongObjectMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    // Key 0 marks a free slot, so its value is kept aside
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    public LongObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR) - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Gets the value of a key.
+     * Safe to call while another thread writes, a torn read returns a wrong result but never
+     * throws, so callers validating an optimistic read can retry under a lock.
+     *
+     * @param key The key
+     * @return The value, or null if the key is not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0L) {
+            return hasZeroKey ? zeroValue : null;
+        }
+
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        if (keys.length != values.length) {
+            return null;
+        }
+
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = keys[slot];
+            if (current == key) {
+                return (V) values[slot];
+            }
+            if (current == 0L) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Maps a key to a value
+     *
+     * @return The previous value, or null if the key was not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0L) {
+            V previous = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        values[slot] = value;
+        keys[slot] = key;
+        if (++size > keys.length * LOAD_FACTOR) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes a key
+     *
+     * @return The removed value, or null if the key was not mapped
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0L) {
+            V previous = zeroValue;
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes every key matching a predicate
+     *
+     * @return The number of removed keys
+     */
+    public int removeIf(LongPredicate predicate) {
+        long[] matched = new long[size];
+        int count = 0;
+
+        if (hasZeroKey && predicate.test(0L)) {
+            matched[count++] = 0L;
+        }
+        for (long key : keys) {
+            if (key != 0L && predicate.test(key)) {
+                matched[count++] = key;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            remove(matched[i]);
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    // Moves following entries of the probe chain into the freed slot
+    private void shiftBack(int slot) {
+        int free = slot;
+        int next = (free + 1) & mask;
+
+        while (keys[next] != 0L) {
+            int home = mix(keys[next]) & mask;
+            // Entry may move back only if its home slot is not between free and next
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        keys[free] = 0L;
+        values[free] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        long[] newKeys = new long[capacity];
+        Object[] newValues = new Object[capacity];
+        int newMask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == 0L) continue;
+
+            int slot = mix(key) & newMask;
+            while (newKeys[slot] != 0L) {
+                slot = (slot + 1) & newMask;
+            }
+            newKeys[slot] = key;
+            newValues[slot] = oldValues[i];
+        }
+
+        // Values first, so a reader never pairs new keys with the old, shorter values array
+        this.values = newValues;
+        this.keys = newKeys;
+        this.mask = newMask;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,87 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import org.bukkit.Bukkit;
+import org.bukkit.FluidCollisionMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Projectile;
+import org.bukkit.util.RayTraceResult;
+import org.bukkit.util.Vector;
+
+/**
+ * Simulates where a thrown ender pearl will land.
+ *
+ * Follows the vanilla throwable projectile tick since 1.21.2: gravity, then drag, then a
+ * ray trace along the new motion and the move. The simulation gives up instead of guessing once the path leaves
+ * the loaded chunks owned by the current thread or it runs out of ticks, so it never loads
+ * chunks. Entities in the path are not simulated, the hit check still covers those.
+ */
+final class PearlTrajectory {
+    private static final double GRAVITY = 0.03;
+    private static final double AIR_DRAG = 0.99;
+    private static final double WATER_DRAG = 0.8;
+
+    private PearlTrajectory() {
+    }
+
+    /**
+     * Predicts the teleport destination of a pearl that was just launched
+     *
+     * @param pearl    The pearl
+     * @param maxTicks How many ticks to simulate at most
+     * @return Where the thrower would be teleported to, or null if it could not be predicted
+     */
+    static Location predictLanding(Projectile pearl, int maxTicks) {
+        World world = pearl.getWorld();
+        Vector position = pearl.getLocation().toVector();
+        Vector velocity = pearl.getVelocity().clone();
+
+        for (int tick = 0; tick < maxTicks; tick++) {
+            // Gravity and drag apply before the move, drag depends on where the pearl is now
+            Block block = world.getBlockAt(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+            velocity.setY(velocity.getY() - GRAVITY);
+            velocity.multiply(block.getType() == Material.WATER ? WATER_DRAG : AIR_DRAG);
+
+            Vector next = position.clone().add(velocity);
+            if (!isReadable(world, position) || !isReadable(world, next)) {
+                return null;
+            }
+
+            double length = velocity.length();
+            if (length > 0) {
+                RayTraceResult hit = world.rayTraceBlocks(position.toLocation(world), velocity, length,
+                        FluidCollisionMode.NEVER, true);
+                if (hit != null && hit.getHitBlock() != null) {
+                    return destination(world, hit);
+                }
+            }
+
+            // A pearl falling out of the world never teleports anyone
+            if (next.getY() < world.getMinHeight()) {
+                return null;
+            }
+
+            position = next;
+        }
+
+        return null;
+    }
+
+    // Same destination the hit check derives from the hit block and face
+    private static Location destination(World world, RayTraceResult hit) {
+        Block block = hit.getHitBlock();
+        Location destination = new Location(world, block.getX(), block.getY(), block.getZ());
+        if (hit.getHitBlockFace() != null) {
+            destination.add(hit.getHitBlockFace().getDirection().multiply(0.5));
+        }
+        return destination;
+    }
+
+    private static boolean isReadable(World world, Vector position) {
+        int chunkX = position.getBlockX() >> 4;
+        int chunkZ = position.getBlockZ() >> 4;
+        return world.isChunkLoaded(chunkX, chunkZ) && Bukkit.isOwnedByCurrentRegion(world, chunkX, chunkZ);
+    }
+}
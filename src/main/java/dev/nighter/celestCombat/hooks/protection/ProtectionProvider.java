@@ -0,0 +1,106 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import dev.nighter.celestCombat.session.PlayerSession;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A source of areas combat players may not enter, such as WorldGuard safezones or
+ * GriefPrevention claims.
+ *
+ * Providers only describe their areas. Pacing, the border computation, the barrier
+ * rendering and pushing players back are done once for all providers by the
+ * {@link BarrierEngine}.
+ */
+public interface ProtectionProvider {
+
+    /**
+     * Name used in debug output
+     */
+    String getName();
+
+    /**
+     * The config section holding the barrier settings, such as "safezone_protection"
+     */
+    String getConfigSection();
+
+    /**
+     * The barrier material used when the config has none or an invalid one
+     */
+    Material getDefaultBarrierMaterial();
+
+    /**
+     * The message sent to a player pushed back at a border
+     */
+    String getEntryMessageKey();
+
+    /**
+     * Checks whether the provider protects anything in a world
+     */
+    boolean isEnabledInWorld(World world);
+
+    /**
+     * A counter that changes whenever the provider's areas in a world change, so computed
+     * barriers can tell they are stale
+     */
+    int getGeneration(World world);
+
+    /**
+     * Checks whether a player may not enter a location, called on the player's thread
+     */
+    boolean isProtected(Player player, PlayerSession session, Location location);
+
+    /**
+     * Whether the engine should check a player's entry on every move. Providers that detect
+     * entry themselves report it through {@link BarrierEngine#onEntry}.
+     */
+    default boolean checksEntryOnMove(PlayerSession session) {
+        return true;
+    }
+
+    /**
+     * Reads what the border search needs around a player, called on the player's thread
+     *
+     * @param player  The player
+     * @param session The player's session
+     * @param world   The player's world
+     * @param x       The player's block x
+     * @param z       The player's block z
+     * @param minY    The lowest y to emit
+     * @param maxY    The highest y to emit
+     * @param radius  How far around the player borders are needed
+     * @return A view the border search can run on from a worker thread
+     */
+    BorderView prepareBorders(Player player, PlayerSession session, World world, int x, int z, int minY, int maxY, int radius);
+
+    /**
+     * Drops whatever the provider keeps for a player that no longer sees barriers
+     */
+    default void release(PlayerSession session) {
+    }
+
+    /**
+     * Checks whether the provider keeps anything for a player that {@link #release} would drop
+     */
+    default boolean holdsState(PlayerSession session) {
+        return false;
+    }
+
+    /**
+     * The borders near a player, read from a barrier worker
+     */
+    @FunctionalInterface
+    interface BorderView {
+
+        /**
+         * Emits the packed keys of the protected blocks next to unprotected ones
+         *
+         * @param out Receives the keys, in any order and possibly repeated
+         */
+        void collect(LongConsumer out);
+    }
+}
@@ -0,0 +1,162 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A static R-tree over the horizontal bounds of the built-in safezones of one world.
+ *
+ * The tree is packed once with the Sort-Tile-Recursive method: regions are sorted into
+ * vertical slices by x, then by z within each slice, and every run of {@link #NODE_SIZE}
+ * entries becomes a node. Each level is a flat int array of bounds, four per node, so a
+ * lookup walks a few arrays with no object per node. Rebuilt from scratch on reload.
+ */
+final class RegionTree {
+    private static final int NODE_SIZE = 8;
+
+    private final SafezoneRegion[] regions;
+
+    // levels[0] holds the bounds of the regions, every level above the bounds of NODE_SIZE entries below it
+    private final int[][] levels;
+
+    RegionTree(List<SafezoneRegion> input) {
+        this.regions = pack(input);
+
+        List<int[]> built = new ArrayList<>();
+        int[] bounds = new int[regions.length * 4];
+        for (int i = 0; i < regions.length; i++) {
+            SafezoneRegion region = regions[i];
+            bounds[i * 4] = region.getMinX();
+            bounds[i * 4 + 1] = region.getMinZ();
+            bounds[i * 4 + 2] = region.getMaxX();
+            bounds[i * 4 + 3] = region.getMaxZ();
+        }
+        built.add(bounds);
+
+        while (bounds.length > 4) {
+            bounds = parentBounds(bounds);
+            built.add(bounds);
+        }
+        this.levels = built.toArray(new int[0][]);
+    }
+
+    int size() {
+        return regions.length;
+    }
+
+    /**
+     * Finds a region containing a block, walks the tree without allocating
+     *
+     * @return The region, or null if the block is in none
+     */
+    SafezoneRegion find(int x, int y, int z) {
+        if (regions.length == 0) return null;
+
+        // Children of a node are the NODE_SIZE entries after node * NODE_SIZE, so the
+        // walk moves between siblings and parents by index instead of keeping a stack
+        int top = levels.length - 1;
+        int level = top, node = 0;
+        while (true) {
+            int[] bounds = levels[level];
+            int offset = node * 4;
+            boolean overlaps = bounds[offset] <= x && bounds[offset + 2] >= x
+                    && bounds[offset + 1] <= z && bounds[offset + 3] >= z;
+
+            if (overlaps) {
+                if (level == 0) {
+                    if (regions[node].contains(x, y, z)) return regions[node];
+                } else {
+                    level--;
+                    node *= NODE_SIZE;
+                    continue;
+                }
+            }
+
+            // Next sibling, climbing up while the node was the last of its parent
+            while (true) {
+                if (level == top) return null;
+
+                int next = node + 1;
+                if (next % NODE_SIZE != 0 && next < levels[level].length / 4) {
+                    node = next;
+                    break;
+                }
+                node /= NODE_SIZE;
+                level++;
+            }
+        }
+    }
+
+    /**
+     * Collects the regions whose bounds overlap an area
+     */
+    SafezoneRegion[] query(int minX, int minZ, int maxX, int maxZ) {
+        List<SafezoneRegion> found = new ArrayList<>();
+        if (regions.length > 0) {
+            search(levels.length - 1, 0, minX, minZ, maxX, maxZ, found);
+        }
+        return found.toArray(new SafezoneRegion[0]);
+    }
+
+    private void search(int level, int node, int minX, int minZ, int maxX, int maxZ, List<SafezoneRegion> found) {
+        int[] bounds = levels[level];
+        int offset = node * 4;
+        if (bounds[offset] > maxX || bounds[offset + 2] < minX || bounds[offset + 1] > maxZ || bounds[offset + 3] < minZ) {
+            return;
+        }
+
+        if (level == 0) {
+            found.add(regions[node]);
+            return;
+        }
+
+        int childCount = levels[level - 1].length / 4;
+        int end = Math.min(childCount, (node + 1) * NODE_SIZE);
+        for (int child = node * NODE_SIZE; child < end; child++) {
+            search(level - 1, child, minX, minZ, maxX, maxZ, found);
+        }
+    }
+
+    private static int[] parentBounds(int[] children) {
+        int childCount = children.length / 4;
+        int parentCount = (childCount + NODE_SIZE - 1) / NODE_SIZE;
+        int[] parents = new int[parentCount * 4];
+
+        for (int parent = 0; parent < parentCount; parent++) {
+            int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            int end = Math.min(childCount, (parent + 1) * NODE_SIZE);
+            for (int child = parent * NODE_SIZE; child < end; child++) {
+                minX = Math.min(minX, children[child * 4]);
+                minZ = Math.min(minZ, children[child * 4 + 1]);
+                maxX = Math.max(maxX, children[child * 4 + 2]);
+                maxZ = Math.max(maxZ, children[child * 4 + 3]);
+            }
+            parents[parent * 4] = minX;
+            parents[parent * 4 + 1] = minZ;
+            parents[parent * 4 + 2] = maxX;
+            parents[parent * 4 + 3] = maxZ;
+        }
+        return parents;
+    }
+
+    /**
+     * Orders the regions so consecutive runs are close together, the leaves of the tree
+     */
+    private static SafezoneRegion[] pack(List<SafezoneRegion> input) {
+        SafezoneRegion[] sorted = input.toArray(new SafezoneRegion[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(region -> (long) region.getMinX() + region.getMaxX()));
+
+        int leafCount = (sorted.length + NODE_SIZE - 1) / NODE_SIZE;
+        int sliceCount = (int) Math.ceil(Math.sqrt(leafCount));
+        int sliceSize = sliceCount * NODE_SIZE;
+
+        Comparator<SafezoneRegion> byZ = Comparator.comparingLong(region -> (long) region.getMinZ() + region.getMaxZ());
+        for (int start = 0; start < sorted.length; start += sliceSize) {
+            Arrays.sort(sorted, start, Math.min(sorted.length, start + sliceSize), byZ);
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,197 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.Scheduler;
+import org.bukkit.HeightMap;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Finds a safe spot outside any safezone near a location, used when a teleport back fails.
+ *
+ * The search walks columns in a square spiral around the location. Each column is only
+ * tested at the original height and on top of the world heightmap, so it costs a handful
+ * of block reads instead of a full vertical scan. Chunks are loaded asynchronously before
+ * the search runs in the location's region.
+ *
+ * The spot found is remembered for the chunk the search started from. The next search
+ * from that chunk re-checks it first, so repeated failures cost a few block reads.
+ */
+public class SafeLocationFinder {
+    private static final int SEARCH_RADIUS = 10;
+    private static final int MAX_CACHED_PER_WORLD = 4096;
+
+    private final CelestCombat plugin;
+    private final SafezoneIndex safezoneIndex;
+
+    // Last safe spot found per starting chunk, dropped when the world's regions change
+    private final Map<UUID, LongObjectMap<Fallback>> fallbacks = new ConcurrentHashMap<>();
+
+    private record Fallback(Location location, int generation) {
+    }
+
+    public SafeLocationFinder(CelestCombat plugin, SafezoneIndex safezoneIndex) {
+        this.plugin = plugin;
+        this.safezoneIndex = safezoneIndex;
+    }
+
+    /**
+     * Searches for a safe location
+     *
+     * @param origin Where to search around
+     * @return A future completed with the safe location, or with null if there is none
+     */
+    public CompletableFuture<Location> find(Location origin) {
+        CompletableFuture<Location> result = new CompletableFuture<>();
+        World world = origin.getWorld();
+        if (world == null) {
+            result.complete(null);
+            return result;
+        }
+
+        Location cached = getFallback(origin);
+
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        int minChunkX = (origin.getBlockX() - SEARCH_RADIUS) >> 4, maxChunkX = (origin.getBlockX() + SEARCH_RADIUS) >> 4;
+        int minChunkZ = (origin.getBlockZ() - SEARCH_RADIUS) >> 4, maxChunkZ = (origin.getBlockZ() + SEARCH_RADIUS) >> 4;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                loads.add(world.getChunkAtAsync(chunkX, chunkZ));
+            }
+        }
+        if (cached != null) {
+            loads.add(world.getChunkAtAsync(cached.getBlockX() >> 4, cached.getBlockZ() >> 4));
+        }
+
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).whenComplete((loaded, error) -> {
+            if (error != null) {
+                plugin.getLogger().log(Level.WARNING, "Error loading chunks for a safe location search", error);
+                result.complete(null);
+                return;
+            }
+
+            Scheduler.runLocationTask(origin, () -> {
+                try {
+                    result.complete(search(origin, cached));
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.WARNING, "Error searching for a safe location", e);
+                    result.complete(null);
+                }
+            });
+        });
+
+        return result;
+    }
+
+    private Location search(Location origin, Location cached) {
+        if (cached != null && isLocationSafe(cached)) {
+            return cached.clone();
+        }
+
+        World world = origin.getWorld();
+        int originX = origin.getBlockX(), originY = origin.getBlockY(), originZ = origin.getBlockZ();
+
+        // The original column gets a full vertical scan, it is the most likely to have room
+        for (int dy = 0; dy <= SEARCH_RADIUS; dy++) {
+            Location found = check(origin, world, originX, originY + dy, originZ);
+            if (found == null && dy > 0) {
+                found = check(origin, world, originX, originY - dy, originZ);
+            }
+            if (found != null) return found;
+        }
+
+        // Then the surrounding columns in rings, nearest first
+        for (int distance = 1; distance <= SEARCH_RADIUS; distance++) {
+            for (int dx = -distance; dx <= distance; dx++) {
+                for (int dz = -distance; dz <= distance; dz++) {
+                    if (Math.abs(dx) < distance && Math.abs(dz) < distance) continue;
+
+                    Location found = checkColumn(origin, world, originX + dx, originY, originZ + dz);
+                    if (found != null) return found;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private Location checkColumn(Location origin, World world, int x, int originY, int z) {
+        Location found = check(origin, world, x, originY, z);
+        if (found != null) return found;
+
+        // Under a ceiling the heightmap points at the roof, not the ground
+        if (world.hasCeiling()) return null;
+
+        int surfaceY = world.getHighestBlockYAt(x, z, HeightMap.MOTION_BLOCKING_NO_LEAVES) + 1;
+        if (surfaceY == originY || Math.abs(surfaceY - originY) > SEARCH_RADIUS) return null;
+
+        return check(origin, world, x, surfaceY, z);
+    }
+
+    private Location check(Location origin, World world, int x, int y, int z) {
+        if (y <= world.getMinHeight() || y + 1 >= world.getMaxHeight()) return null;
+
+        Location location = new Location(world, x + 0.5, y, z + 0.5, origin.getYaw(), origin.getPitch());
+        if (!isLocationSafe(location)) return null;
+
+        putFallback(origin, location);
+        return location;
+    }
+
+    private boolean isLocationSafe(Location location) {
+        if (safezoneIndex.isSafeZone(location)) return false;
+
+        World world = location.getWorld();
+        int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
+        Block feet = world.getBlockAt(x, y, z);
+        Block head = world.getBlockAt(x, y + 1, z);
+        Block ground = world.getBlockAt(x, y - 1, z);
+
+        return (feet.getType() == Material.AIR || !feet.getType().isSolid())
+                && (head.getType() == Material.AIR || !head.getType().isSolid())
+                && ground.getType().isSolid();
+    }
+
+    private Location getFallback(Location origin) {
+        LongObjectMap<Fallback> map = fallbacks.get(origin.getWorld().getUID());
+        if (map == null) return null;
+
+        Fallback fallback;
+        synchronized (map) {
+            fallback = map.get(chunkKey(origin));
+        }
+
+        int generation = safezoneIndex.forWorld(origin.getWorld()).currentGeneration();
+        return fallback != null && fallback.generation() == generation ? fallback.location() : null;
+    }
+
+    private void putFallback(Location origin, Location location) {
+        int generation = safezoneIndex.forWorld(origin.getWorld()).currentGeneration();
+        LongObjectMap<Fallback> map = fallbacks.computeIfAbsent(origin.getWorld().getUID(), uid -> new LongObjectMap<>(64));
+
+        synchronized (map) {
+            if (map.size() >= MAX_CACHED_PER_WORLD) {
+                map.clear();
+            }
+            map.put(chunkKey(origin), new Fallback(location.clone(), generation));
+        }
+    }
+
+    public void clear() {
+        fallbacks.clear();
+    }
+
+    private static long chunkKey(Location location) {
+        return (long) (location.getBlockX() >> 4) << 32 | ((location.getBlockZ() >> 4) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,69 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldguard.LocalPlayer;
+import com.sk89q.worldguard.protection.ApplicableRegionSet;
+import com.sk89q.worldguard.protection.flags.Flags;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.session.MoveType;
+import com.sk89q.worldguard.session.Session;
+import com.sk89q.worldguard.session.handler.Handler;
+
+import java.util.Set;
+
+/**
+ * A WorldGuard session handler that reports players crossing into a safezone.
+ *
+ * WorldGuard already resolves the regions at a player's position on every move and only
+ * calls this handler when the set of regions changes, so the PvP state is evaluated at
+ * region boundaries instead of twice per block change.
+ */
+public class SafezoneHandler extends Handler {
+    private final WorldGuardHook hook;
+    private boolean inSafezone;
+
+    public static class Factory extends Handler.Factory<SafezoneHandler> {
+        private final WorldGuardHook hook;
+
+        Factory(WorldGuardHook hook) {
+            this.hook = hook;
+        }
+
+        @Override
+        public SafezoneHandler create(Session session) {
+            return new SafezoneHandler(session, hook);
+        }
+    }
+
+    private SafezoneHandler(Session session, WorldGuardHook hook) {
+        super(session);
+        this.hook = hook;
+    }
+
+    @Override
+    public void initialize(LocalPlayer player, Location current, ApplicableRegionSet set) {
+        inSafezone = isSafezone(set);
+        if (hook.isActive()) {
+            hook.onHandlerAttached(BukkitAdapter.adapt(player));
+        }
+    }
+
+    @Override
+    public boolean onCrossBoundary(LocalPlayer player, Location from, Location to, ApplicableRegionSet toSet,
+                                   Set<ProtectedRegion> entered, Set<ProtectedRegion> exited, MoveType moveType) {
+        boolean wasSafezone = inSafezone;
+        inSafezone = isSafezone(toSet);
+
+        // Teleports are not movement, pearls are handled by the hook itself
+        if (!wasSafezone && inSafezone && !moveType.isTeleport() && hook.isActive()) {
+            hook.onSafezoneEntry(BukkitAdapter.adapt(player), BukkitAdapter.adapt(from), BukkitAdapter.adapt(to));
+        }
+        return true;
+    }
+
+    // Same rule as the safezone index: PvP denied for players outside the regions
+    private static boolean isSafezone(ApplicableRegionSet set) {
+        return !set.testState(null, Flags.PVP);
+    }
+}
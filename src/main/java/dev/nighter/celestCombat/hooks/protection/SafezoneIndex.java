@@ -0,0 +1,776 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.math.BlockVector2;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldguard.WorldGuard;
+import com.sk89q.worldguard.protection.flags.Flags;
+import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.regions.GlobalProtectedRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedPolygonalRegion;
+import com.sk89q.worldguard.protection.regions.ProtectedRegion;
+import com.sk89q.worldguard.protection.regions.RegionQuery;
+import dev.nighter.celestCombat.CelestCombat;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Answers "is this block a safezone" from a per-world index of 16x16x16 chunk sections.
+ *
+ * A section is compiled from the WorldGuard regions overlapping it the first time it is
+ * queried. Sections that no region boundary crosses are stored as fully safe or fully
+ * unsafe, only sections a boundary crosses keep a 4096 bit set. Regions are polled for
+ * changes and only the sections a changed region covers are dropped and recompiled.
+ *
+ * Compiling asks WorldGuard for regions and flags, which only happens on the thread that
+ * owns the queried blocks. Barrier workers read geometry that was compiled beforehand.
+ */
+public class SafezoneIndex {
+    private static final String SECTION_REGION_ID = "__celest_section";
+    // Above this many sections a changed region drops the whole world instead of a box
+    private static final long MAX_INVALIDATED_SECTIONS = 4096;
+
+    private final CelestCombat plugin;
+    private final RegionQuery regionQuery;
+    private final Map<UUID, WorldIndex> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * A compiled chunk section, the two uniform states are shared instances
+     */
+    private static final class Section {
+        static final Section SAFE = new Section(true, null);
+        static final Section UNSAFE = new Section(false, null);
+
+        final boolean safe;
+        final long[] bits;
+
+        Section(boolean safe, long[] bits) {
+            this.safe = safe;
+            this.bits = bits;
+        }
+
+        boolean isSafe(int x, int y, int z) {
+            if (bits == null) {
+                return safe;
+            }
+            int bit = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+            return (bits[bit >>> 6] & (1L << bit)) != 0L;
+        }
+    }
+
+    public SafezoneIndex(CelestCombat plugin) {
+        this.plugin = plugin;
+        this.regionQuery = WorldGuard.getInstance().getPlatform().getRegionContainer().createQuery();
+    }
+
+    public boolean isSafeZone(Location location) {
+        if (location == null || location.getWorld() == null) return false;
+        return forWorld(location.getWorld()).isSafe(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Gets the index of a world, callers checking many blocks should fetch it once
+     */
+    public WorldIndex forWorld(World world) {
+        WorldIndex index = worlds.get(world.getUID());
+        if (index == null) {
+            index = worlds.computeIfAbsent(world.getUID(), uid -> new WorldIndex(world));
+        }
+        return index;
+    }
+
+    /**
+     * Compares every region against its last seen state and drops the sections of the ones that changed.
+     * Runs on the cleanup timer, region managers are safe to read off the main thread.
+     */
+    public void pollRegionChanges() {
+        for (Map.Entry<UUID, WorldIndex> entry : worlds.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            if (world == null) {
+                worlds.remove(entry.getKey());
+                continue;
+            }
+            entry.getValue().pollRegionChanges();
+        }
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    public class WorldIndex {
+        private final World world;
+        private final LongObjectMap<Section> sections = new LongObjectMap<>(256);
+        // Border geometry shared by every player near a section, guarded by the same lock
+        private final LongObjectMap<BorderSection> borders = new LongObjectMap<>(64);
+        private final StampedLock lock = new StampedLock();
+        // Bumped on every invalidation, a section compiled across one is not stored
+        private int generation;
+
+        // Last seen state of every region, used to find what changed since the last poll
+        private volatile RegionManager regionManager;
+        private Map<String, RegionStamp> stamps = Map.of();
+
+        WorldIndex(World world) {
+            this.world = world;
+            this.regionManager = getRegionManager();
+            this.stamps = stampRegions(regionManager);
+        }
+
+        public boolean isSafe(int x, int y, int z) {
+            long key = BlockKeys.pack(x >> 4, y >> 4, z >> 4);
+
+            long stamp = lock.tryOptimisticRead();
+            Section section = sections.get(key);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    section = sections.get(key);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            if (section == null) {
+                int compiledGeneration = currentGeneration();
+                section = compileSection(x >> 4, y >> 4, z >> 4);
+                stamp = lock.writeLock();
+                try {
+                    if (generation == compiledGeneration) {
+                        sections.put(key, section);
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+
+            return section.isSafe(x, y, z);
+        }
+
+        /**
+         * Checks whether a block is a safezone block next to a block outside of the safezone
+         */
+        public boolean isBorder(int x, int y, int z) {
+            return isSafe(x, y, z)
+                && (!isSafe(x + 1, y, z) || !isSafe(x - 1, y, z) || !isSafe(x, y, z + 1) || !isSafe(x, y, z - 1));
+        }
+
+        /**
+         * Gets the border geometry within a horizontal radius of a point, compiling what is missing.
+         *
+         * Compiling queries WorldGuard, so this runs on the player's thread. The result is
+         * handed to {@link #collectBorders} on a barrier worker, which only reads it.
+         *
+         * @param centerX The block x of the center
+         * @param centerZ The block z of the center
+         * @param minY    The lowest block y to check
+         * @param maxY    The highest block y to check
+         * @param radius  The horizontal radius, in blocks
+         * @return The geometry of every chunk section in range
+         */
+        public PreparedBorders prepareBorders(int centerX, int centerZ, int minY, int maxY, int radius) {
+            int minSectionX = (centerX - radius) >> 4, maxSectionX = (centerX + radius) >> 4;
+            int minSectionY = minY >> 4, maxSectionY = maxY >> 4;
+            int minSectionZ = (centerZ - radius) >> 4, maxSectionZ = (centerZ + radius) >> 4;
+
+            int count = (maxSectionX - minSectionX + 1) * (maxSectionY - minSectionY + 1) * (maxSectionZ - minSectionZ + 1);
+            PreparedBorders prepared = new PreparedBorders(centerX, centerZ, minY, maxY, radius, count);
+
+            // Compile missing geometry outside the lock, isSafe takes it on its own
+            int i = 0;
+            for (int sx = minSectionX; sx <= maxSectionX; sx++) {
+                for (int sy = minSectionY; sy <= maxSectionY; sy++) {
+                    for (int sz = minSectionZ; sz <= maxSectionZ; sz++) {
+                        prepared.needed[i] = BlockKeys.pack(sx, sy, sz);
+                        prepared.geometry[i] = getBorderSection(prepared.needed[i]);
+                        if (prepared.geometry[i] == null) {
+                            prepared.compiledGenerations[i] = currentGeneration();
+                            prepared.geometry[i] = new BorderSection(compileBorders(sx, sy, sz));
+                        } else {
+                            prepared.compiledGenerations[i] = -1;
+                        }
+                        i++;
+                    }
+                }
+            }
+            return prepared;
+        }
+
+        /**
+         * Collects the border blocks of prepared geometry, safe to call from any thread.
+         *
+         * Border geometry is shared by every player near a section. The caller holds a lease
+         * on the sections it uses, passing the previous lease releases the ones that are no
+         * longer in range, so geometry nobody uses is dropped.
+         *
+         * @param prepared The geometry returned by {@link #prepareBorders}
+         * @param previous The lease returned by the previous call, may be null
+         * @param out      Receives the packed keys of the border blocks
+         * @return The lease on the sections now in use, to be passed to the next call or released
+         */
+        public BorderLease collectBorders(PreparedBorders prepared, BorderLease previous, LongConsumer out) {
+            if (previous != null && previous.index != this) {
+                previous.release();
+            }
+
+            long[] needed = prepared.needed;
+            BorderSection[] geometry = prepared.geometry;
+            int[] compiledGenerations = prepared.compiledGenerations;
+            BorderSection[] taken = new BorderSection[needed.length];
+
+            long stamp = lock.writeLock();
+            try {
+                // The previous lease is handed over, unless it was released in the meantime
+                BorderLease held = null;
+                if (previous != null && previous.index == this && !previous.released) {
+                    previous.released = true;
+                    held = previous;
+                }
+
+                for (int i = 0; i < needed.length; i++) {
+                    BorderSection stored = borders.get(needed[i]);
+                    if (stored == null && compiledGenerations[i] == generation) {
+                        borders.put(needed[i], geometry[i]);
+                        stored = geometry[i];
+                    }
+
+                    if (stored != null) {
+                        geometry[i] = stored;
+                        taken[i] = stored;
+                        // A section recompiled since the previous lease is a new instance, it needs its own reference
+                        if (held == null || find(held.keys, held.sections, needed[i]) != stored) {
+                            stored.references++;
+                        }
+                    }
+                }
+
+                if (held != null) {
+                    for (int i = 0; i < held.keys.length; i++) {
+                        BorderSection section = held.sections[i];
+                        if (section != null && find(needed, taken, held.keys[i]) != section) {
+                            releaseBorder(held.keys[i], section);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            int radiusSquared = prepared.radius * prepared.radius;
+            for (BorderSection section : geometry) {
+                for (long block : section.blocks) {
+                    int dx = BlockKeys.x(block) - prepared.centerX;
+                    int dz = BlockKeys.z(block) - prepared.centerZ;
+                    int y = BlockKeys.y(block);
+                    if (dx * dx + dz * dz <= radiusSquared && y >= prepared.minY && y <= prepared.maxY) {
+                        out.accept(block);
+                    }
+                }
+            }
+
+            return new BorderLease(this, needed, taken);
+        }
+
+        private void releaseBorders(BorderLease lease) {
+            long stamp = lock.writeLock();
+            try {
+                if (lease.released) return;
+                lease.released = true;
+
+                for (int i = 0; i < lease.keys.length; i++) {
+                    if (lease.sections[i] != null) {
+                        releaseBorder(lease.keys[i], lease.sections[i]);
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private BorderSection getBorderSection(long key) {
+            long stamp = lock.readLock();
+            try {
+                return borders.get(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Caller holds the write lock, a section dropped by an invalidation is no longer stored under its key
+        private void releaseBorder(long key, BorderSection section) {
+            if (--section.references <= 0 && borders.get(key) == section) {
+                borders.remove(key);
+            }
+        }
+
+        /**
+         * Finds every border block of a chunk section.
+         * A block's state can only differ from its neighbour's where one of them is inside a
+         * region and the other is not, so only the columns along region edges are tested.
+         */
+        private long[] compileBorders(int sectionX, int sectionY, int sectionZ) {
+            RegionManager manager = regionManager;
+            if (manager == null) return new long[0];
+
+            int minX = sectionX << 4, minY = sectionY << 4, minZ = sectionZ << 4;
+            EdgeColumns columns = new EdgeColumns(minX, minZ, minX + 15, minZ + 15);
+
+            try {
+                // Widened by a block, an edge just outside the section still borders blocks inside it
+                BlockVector3 min = BlockVector3.at(minX - 1, minY, minZ - 1);
+                BlockVector3 max = BlockVector3.at(minX + 16, minY + 15, minZ + 16);
+                ProtectedCuboidRegion bounds = new ProtectedCuboidRegion(SECTION_REGION_ID, true, min, max);
+                for (ProtectedRegion region : manager.getApplicableRegions(bounds).getRegions()) {
+                    columns.addEdges(region);
+                }
+            } catch (Exception e) {
+                plugin.getLogger().warning("Error checking WorldGuard: " + e.getMessage());
+                return new long[0];
+            }
+
+            LongStream.Builder found = LongStream.builder();
+            for (int c = 0; c < columns.count; c++) {
+                int x = columns.xs[c];
+                int z = columns.zs[c];
+                for (int y = minY; y < minY + 16; y++) {
+                    if (isBorder(x, y, z)) {
+                        found.add(BlockKeys.pack(x, y, z));
+                    }
+                }
+            }
+            return found.build().toArray();
+        }
+
+        private Section compileSection(int sectionX, int sectionY, int sectionZ) {
+            RegionManager manager = regionManager;
+            if (manager == null) {
+                return Section.UNSAFE;
+            }
+
+            BlockVector3 min = BlockVector3.at(sectionX << 4, sectionY << 4, sectionZ << 4);
+            BlockVector3 max = min.add(15, 15, 15);
+
+            try {
+                ProtectedCuboidRegion bounds = new ProtectedCuboidRegion(SECTION_REGION_ID, true, min, max);
+
+                // Regions that cover only part of the section split it, the rest apply to every block
+                List<ProtectedRegion> partial = new ArrayList<>();
+                for (ProtectedRegion region : manager.getApplicableRegions(bounds).getRegions()) {
+                    boolean covers = region instanceof ProtectedCuboidRegion && region.contains(min) && region.contains(max);
+                    if (!covers) {
+                        partial.add(region);
+                    }
+                }
+
+                if (partial.isEmpty()) {
+                    return testSafe(min.getX() + 8, min.getY() + 8, min.getZ() + 8) ? Section.SAFE : Section.UNSAFE;
+                }
+
+                return compileMixedSection(min, partial);
+            } catch (Exception e) {
+                plugin.getLogger().warning("Error checking WorldGuard: " + e.getMessage());
+                return Section.UNSAFE;
+            }
+        }
+
+        private Section compileMixedSection(BlockVector3 min, List<ProtectedRegion> partial) {
+            long[] bits = new long[64];
+            int safeCount = 0;
+
+            // Blocks inside the same set of regions share a result, so WorldGuard is queried once per set
+            Map<Object, Boolean> resultsByRegions = new HashMap<>();
+            boolean useMask = partial.size() <= 64;
+
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        int blockX = min.getX() + x;
+                        int blockY = min.getY() + y;
+                        int blockZ = min.getZ() + z;
+
+                        Object regionsKey;
+                        if (useMask) {
+                            long mask = 0L;
+                            for (int i = 0; i < partial.size(); i++) {
+                                if (partial.get(i).contains(blockX, blockY, blockZ)) {
+                                    mask |= 1L << i;
+                                }
+                            }
+                            regionsKey = mask;
+                        } else {
+                            Set<String> containing = new HashSet<>();
+                            for (ProtectedRegion region : partial) {
+                                if (region.contains(blockX, blockY, blockZ)) {
+                                    containing.add(region.getId());
+                                }
+                            }
+                            regionsKey = containing;
+                        }
+
+                        boolean safe = resultsByRegions.computeIfAbsent(regionsKey, k -> testSafe(blockX, blockY, blockZ));
+                        if (safe) {
+                            int bit = (y << 8) | (z << 4) | x;
+                            bits[bit >>> 6] |= 1L << bit;
+                            safeCount++;
+                        }
+                    }
+                }
+            }
+
+            if (safeCount == 0) return Section.UNSAFE;
+            if (safeCount == 4096) return Section.SAFE;
+            return new Section(false, bits);
+        }
+
+        private boolean testSafe(int x, int y, int z) {
+            Location location = new Location(world, x + 0.5, y, z + 0.5);
+            return !regionQuery.testState(BukkitAdapter.adapt(location), null, Flags.PVP);
+        }
+
+        private void pollRegionChanges() {
+            RegionManager manager = getRegionManager();
+            if (manager != regionManager) {
+                // WorldGuard reloaded its regions, nothing compiled before is valid
+                this.regionManager = manager;
+                this.stamps = stampRegions(manager);
+                invalidateAll();
+                return;
+            }
+
+            Map<String, RegionStamp> current = stampRegions(manager);
+            Set<String> changed = new HashSet<>();
+            for (Map.Entry<String, RegionStamp> entry : current.entrySet()) {
+                if (!entry.getValue().equals(stamps.get(entry.getKey()))) {
+                    changed.add(entry.getKey());
+                }
+            }
+            for (String id : stamps.keySet()) {
+                if (!current.containsKey(id)) {
+                    changed.add(id);
+                }
+            }
+
+            if (changed.isEmpty()) return;
+
+            // Children inherit flags, so a changed parent changes them as well
+            for (ProtectedRegion region : manager.getRegions().values()) {
+                for (ProtectedRegion parent = region.getParent(); parent != null; parent = parent.getParent()) {
+                    if (changed.contains(parent.getId())) {
+                        changed.add(region.getId());
+                        break;
+                    }
+                }
+            }
+
+            List<RegionStamp> boxes = new ArrayList<>();
+            for (String id : changed) {
+                RegionStamp before = stamps.get(id);
+                RegionStamp after = current.get(id);
+                if (before != null) boxes.add(before);
+                if (after != null) boxes.add(after);
+            }
+
+            this.stamps = current;
+            invalidate(boxes);
+            plugin.debug("Safezone index: " + changed.size() + " regions changed in " + world.getName());
+        }
+
+        private void invalidate(List<RegionStamp> boxes) {
+            for (RegionStamp box : boxes) {
+                if (box.global || box.sectionCount() > MAX_INVALIDATED_SECTIONS) {
+                    invalidateAll();
+                    return;
+                }
+            }
+
+            long stamp = lock.writeLock();
+            try {
+                generation++;
+                for (RegionStamp box : boxes) {
+                    // Borders look one block sideways, so the geometry of neighbouring sections goes too
+                    for (int x = box.minX - 1; x <= box.maxX + 1; x++) {
+                        for (int y = box.minY; y <= box.maxY; y++) {
+                            for (int z = box.minZ - 1; z <= box.maxZ + 1; z++) {
+                                long key = BlockKeys.pack(x, y, z);
+                                borders.remove(key);
+                                if (x >= box.minX && x <= box.maxX && z >= box.minZ && z <= box.maxZ) {
+                                    sections.remove(key);
+                                }
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void invalidateAll() {
+            long stamp = lock.writeLock();
+            try {
+                generation++;
+                sections.clear();
+                borders.clear();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * A counter bumped whenever regions of this world change
+         */
+        public int currentGeneration() {
+            long stamp = lock.readLock();
+            try {
+                return generation;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private RegionManager getRegionManager() {
+            return WorldGuard.getInstance().getPlatform().getRegionContainer().get(BukkitAdapter.adapt(world));
+        }
+    }
+
+    /**
+     * Border geometry compiled on the player's thread for one collect call
+     */
+    public static final class PreparedBorders {
+        private final int centerX, centerZ, minY, maxY, radius;
+        private final long[] needed;
+        private final BorderSection[] geometry;
+        // The generation each section was compiled at, -1 for geometry that was already stored
+        private final int[] compiledGenerations;
+
+        private PreparedBorders(int centerX, int centerZ, int minY, int maxY, int radius, int count) {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.minY = minY;
+            this.maxY = maxY;
+            this.radius = radius;
+            this.needed = new long[count];
+            this.geometry = new BorderSection[count];
+            this.compiledGenerations = new int[count];
+        }
+    }
+
+    /**
+     * The border sections a player holds in one world.
+     * A lease is used up once, either released or passed to the next collect call.
+     *
+     * The lease keeps the section instances it counted, so a section recompiled under the
+     * same key after a region change is never released in place of the one it replaced.
+     */
+    public static final class BorderLease {
+        private final WorldIndex index;
+        private final long[] keys;
+        // The counted section for each key, null where the geometry was not stored
+        private final BorderSection[] sections;
+
+        // Guarded by the index lock
+        private boolean released;
+
+        private BorderLease(WorldIndex index, long[] keys, BorderSection[] sections) {
+            this.index = index;
+            this.keys = keys;
+            this.sections = sections;
+        }
+
+        public void release() {
+            index.releaseBorders(this);
+        }
+    }
+
+    /**
+     * Shared border geometry of one chunk section and the number of players using it
+     */
+    private static final class BorderSection {
+        final long[] blocks;
+        int references;
+
+        BorderSection(long[] blocks) {
+            this.blocks = blocks;
+        }
+    }
+
+    /**
+     * The distinct columns along region edges inside a rectangle, the columns on both sides of an edge are kept
+     */
+    private static final class EdgeColumns {
+        final int minX, minZ, maxX, maxZ, depth;
+        final boolean[] marked;
+        int[] xs = new int[64];
+        int[] zs = new int[64];
+        int count;
+
+        EdgeColumns(int minX, int minZ, int maxX, int maxZ) {
+            this.minX = minX;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxZ = maxZ;
+            this.depth = maxZ - minZ + 1;
+            this.marked = new boolean[(maxX - minX + 1) * depth];
+        }
+
+        void addEdges(ProtectedRegion region) {
+            if (region instanceof GlobalProtectedRegion) return;
+
+            if (region instanceof ProtectedCuboidRegion) {
+                BlockVector3 min = region.getMinimumPoint();
+                BlockVector3 max = region.getMaximumPoint();
+
+                for (int x = Math.max(min.getX() - 1, minX); x <= Math.min(max.getX() + 1, maxX); x++) {
+                    mark(x, min.getZ() - 1);
+                    mark(x, min.getZ());
+                    mark(x, max.getZ());
+                    mark(x, max.getZ() + 1);
+                }
+                for (int z = Math.max(min.getZ() - 1, minZ); z <= Math.min(max.getZ() + 1, maxZ); z++) {
+                    mark(min.getX() - 1, z);
+                    mark(min.getX(), z);
+                    mark(max.getX(), z);
+                    mark(max.getX() + 1, z);
+                }
+            } else if (region instanceof ProtectedPolygonalRegion) {
+                List<BlockVector2> points = region.getPoints();
+                for (int i = 0; i < points.size(); i++) {
+                    BlockVector2 from = points.get(i);
+                    BlockVector2 to = points.get((i + 1) % points.size());
+                    addSegment(from.getX(), from.getZ(), to.getX(), to.getZ());
+                }
+            } else {
+                // Unknown shape, every column it covers inside the rectangle is a candidate
+                BlockVector3 min = region.getMinimumPoint();
+                BlockVector3 max = region.getMaximumPoint();
+                for (int x = Math.max(min.getX() - 1, minX); x <= Math.min(max.getX() + 1, maxX); x++) {
+                    for (int z = Math.max(min.getZ() - 1, minZ); z <= Math.min(max.getZ() + 1, maxZ); z++) {
+                        mark(x, z);
+                    }
+                }
+            }
+        }
+
+        // Walks the segment in half block steps and keeps every column within one block of it
+        private void addSegment(int x1, int z1, int x2, int z2) {
+            int steps = Math.max(Math.abs(x2 - x1), Math.abs(z2 - z1)) * 2;
+            for (int step = 0; step <= steps; step++) {
+                double t = steps == 0 ? 0 : (double) step / steps;
+                int x = (int) Math.floor(x1 + (x2 - x1) * t);
+                int z = (int) Math.floor(z1 + (z2 - z1) * t);
+
+                if (x < minX - 1 || x > maxX + 1 || z < minZ - 1 || z > maxZ + 1) continue;
+
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dz = -1; dz <= 1; dz++) {
+                        mark(x + dx, z + dz);
+                    }
+                }
+            }
+        }
+
+        private void mark(int x, int z) {
+            if (x < minX || x > maxX || z < minZ || z > maxZ) return;
+
+            int cell = (x - minX) * depth + (z - minZ);
+            if (marked[cell]) return;
+            marked[cell] = true;
+
+            if (count == xs.length) {
+                xs = Arrays.copyOf(xs, count * 2);
+                zs = Arrays.copyOf(zs, count * 2);
+            }
+            xs[count] = x;
+            zs[count] = z;
+            count++;
+        }
+    }
+
+    /**
+     * What a region looked like when last polled, reduced to the section box it covers
+     * and a hash of everything that affects its PvP state
+     */
+    private static final class RegionStamp {
+        final int minX, minY, minZ, maxX, maxY, maxZ;
+        final boolean global;
+        final long hash;
+
+        RegionStamp(ProtectedRegion region) {
+            BlockVector3 min = region.getMinimumPoint();
+            BlockVector3 max = region.getMaximumPoint();
+            this.minX = min.getX() >> 4;
+            this.minY = min.getY() >> 4;
+            this.minZ = min.getZ() >> 4;
+            this.maxX = max.getX() >> 4;
+            this.maxY = max.getY() >> 4;
+            this.maxZ = max.getZ() >> 4;
+            this.global = region instanceof GlobalProtectedRegion;
+
+            long h = region.getPriority();
+            h = h * 31 + min.hashCode();
+            h = h * 31 + max.hashCode();
+            h = h * 31 + region.getPoints().hashCode();
+            h = h * 31 + Objects.hashCode(region.getFlag(Flags.PVP));
+            h = h * 31 + Objects.hashCode(region.getFlag(Flags.PVP.getRegionGroupFlag()));
+            h = h * 31 + (region.getParent() != null ? region.getParent().getId().hashCode() : 0);
+            this.hash = h;
+        }
+
+        long sectionCount() {
+            return (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RegionStamp other)) return false;
+            return hash == other.hash && global == other.global
+                && minX == other.minX && minY == other.minY && minZ == other.minZ
+                && maxX == other.maxX && maxY == other.maxY && maxZ == other.maxZ;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    private static Map<String, RegionStamp> stampRegions(RegionManager manager) {
+        if (manager == null) {
+            return Map.of();
+        }
+
+        Map<String, RegionStamp> stamps = new HashMap<>();
+        for (ProtectedRegion region : manager.getRegions().values()) {
+            stamps.put(region.getId(), new RegionStamp(region));
+        }
+        return stamps;
+    }
+
+    /**
+     * The section leased under a key, or null when the key is not part of the lease
+     */
+    private static BorderSection find(long[] keys, BorderSection[] sections, long key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key) return sections[i];
+        }
+        return null;
+    }
+
+}
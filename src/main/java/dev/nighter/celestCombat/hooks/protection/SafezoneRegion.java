@@ -0,0 +1,312 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.List;
+
+/**
+ * A built-in safezone shape, loaded from safezones.yml.
+ *
+ * Every shape is a 2D outline extruded between two heights. The outline test runs on
+ * block coordinates, a block belongs to a cylinder or polygon when its center does.
+ * Regions are immutable and safe to read from any thread.
+ */
+public abstract class SafezoneRegion {
+    private final String name;
+    private final int minX, minZ, maxX, maxZ;
+    private final int minY, maxY;
+
+    private SafezoneRegion(String name, int minX, int minZ, int maxX, int maxZ, int minY, int maxY) {
+        this.name = name;
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return y >= minY && y <= maxY
+                && x >= minX && x <= maxX && z >= minZ && z <= maxZ
+                && containsColumn(x, z);
+    }
+
+    /**
+     * Checks the outline, only called for columns inside the bounding box
+     */
+    abstract boolean containsColumn(int x, int z);
+
+    /**
+     * Emits the columns of the region with a horizontal neighbour outside of it, the only
+     * columns that can hold a border. Columns near the rectangle are emitted, possibly a few
+     * extra ones and possibly more than once, the caller clips and tests them.
+     */
+    abstract void addOutline(int minX, int minZ, int maxX, int maxZ, ColumnConsumer out);
+
+    @FunctionalInterface
+    interface ColumnConsumer {
+        void accept(int x, int z);
+    }
+
+    /**
+     * Reads a region from its config section
+     *
+     * @throws IllegalArgumentException if the section does not describe a valid region
+     */
+    static SafezoneRegion load(String name, ConfigurationSection section) {
+        String shape = section.getString("shape", "cuboid").toLowerCase();
+        switch (shape) {
+            case "cuboid": {
+                int[] min = readInts(section, "min", 3);
+                int[] max = readInts(section, "max", 3);
+                return new Cuboid(name, Math.min(min[0], max[0]), Math.min(min[2], max[2]),
+                        Math.max(min[0], max[0]), Math.max(min[2], max[2]),
+                        Math.min(min[1], max[1]), Math.max(min[1], max[1]));
+            }
+            case "cylinder": {
+                int[] center = readInts(section, "center", 2);
+                double radius = section.getDouble("radius", -1);
+                if (radius < 0) {
+                    throw new IllegalArgumentException("cylinder needs a radius");
+                }
+                return new Cylinder(name, center[0], center[1], radius, minY(section), maxY(section));
+            }
+            case "polygon": {
+                List<?> points = section.getList("points");
+                if (points == null || points.size() < 3) {
+                    throw new IllegalArgumentException("polygon needs at least 3 points");
+                }
+                int[] xs = new int[points.size()];
+                int[] zs = new int[points.size()];
+                for (int i = 0; i < xs.length; i++) {
+                    int[] point = toInts(points.get(i), 2, "points");
+                    xs[i] = point[0];
+                    zs[i] = point[1];
+                }
+                return new Polygon(name, xs, zs, minY(section), maxY(section));
+            }
+            default:
+                throw new IllegalArgumentException("unknown shape '" + shape + "', use cuboid, cylinder or polygon");
+        }
+    }
+
+    private static int minY(ConfigurationSection section) {
+        return section.getInt("min_y", Integer.MIN_VALUE);
+    }
+
+    private static int maxY(ConfigurationSection section) {
+        return section.getInt("max_y", Integer.MAX_VALUE);
+    }
+
+    private static int[] readInts(ConfigurationSection section, String key, int count) {
+        return toInts(section.get(key), count, key);
+    }
+
+    private static int[] toInts(Object value, int count, String key) {
+        if (!(value instanceof List<?> list) || list.size() != count) {
+            throw new IllegalArgumentException("'" + key + "' needs " + count + " numbers");
+        }
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (!(list.get(i) instanceof Number number)) {
+                throw new IllegalArgumentException("'" + key + "' needs " + count + " numbers");
+            }
+            result[i] = (int) Math.floor(number.doubleValue());
+        }
+        return result;
+    }
+
+    private static final class Cuboid extends SafezoneRegion {
+        Cuboid(String name, int minX, int minZ, int maxX, int maxZ, int minY, int maxY) {
+            super(name, minX, minZ, maxX, maxZ, minY, maxY);
+        }
+
+        @Override
+        boolean containsColumn(int x, int z) {
+            // The bounding box is the cuboid
+            return true;
+        }
+
+        @Override
+        void addOutline(int minX, int minZ, int maxX, int maxZ, ColumnConsumer out) {
+            int fromX = Math.max(minX, getMinX()), toX = Math.min(maxX, getMaxX());
+            for (int x = fromX; x <= toX; x++) {
+                out.accept(x, getMinZ());
+                out.accept(x, getMaxZ());
+            }
+
+            int fromZ = Math.max(minZ, getMinZ()), toZ = Math.min(maxZ, getMaxZ());
+            for (int z = fromZ; z <= toZ; z++) {
+                out.accept(getMinX(), z);
+                out.accept(getMaxX(), z);
+            }
+        }
+    }
+
+    private static final class Cylinder extends SafezoneRegion {
+        private final int centerX, centerZ;
+        private final double radiusSquared;
+
+        Cylinder(String name, int centerX, int centerZ, double radius, int minY, int maxY) {
+            super(name, (int) Math.floor(centerX - radius), (int) Math.floor(centerZ - radius),
+                    (int) Math.ceil(centerX + radius), (int) Math.ceil(centerZ + radius), minY, maxY);
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radiusSquared = radius * radius;
+        }
+
+        @Override
+        boolean containsColumn(int x, int z) {
+            long dx = x - centerX, dz = z - centerZ;
+            return dx * dx + dz * dz <= radiusSquared;
+        }
+
+        @Override
+        void addOutline(int minX, int minZ, int maxX, int maxZ, ColumnConsumer out) {
+            int fromX = Math.max(minX, getMinX()), toX = Math.min(maxX, getMaxX());
+            for (int x = fromX; x <= toX; x++) {
+                long dx = x - centerX;
+                int half = halfWidth(dx);
+                if (half < 0) continue;
+
+                // The column's outermost blocks, and the ones the shorter neighbouring columns leave exposed
+                int inner = Math.min(halfWidth(dx - 1), halfWidth(dx + 1));
+                for (int dz = Math.min(inner + 1, half); dz <= half; dz++) {
+                    out.accept(x, centerZ + dz);
+                    out.accept(x, centerZ - dz);
+                }
+            }
+        }
+
+        /**
+         * The largest z distance from the center inside the circle at a x distance, -1 if there is none
+         */
+        private int halfWidth(long dx) {
+            if (dx * dx > radiusSquared) return -1;
+
+            long half = (long) Math.sqrt(radiusSquared - dx * dx);
+            while (dx * dx + (half + 1) * (half + 1) <= radiusSquared) half++;
+            while (half > 0 && dx * dx + half * half > radiusSquared) half--;
+            return (int) half;
+        }
+    }
+
+    private static final class Polygon extends SafezoneRegion {
+        private static final double EDGE_REACH = 1.25;
+
+        private final int[] xs, zs;
+
+        Polygon(String name, int[] xs, int[] zs, int minY, int maxY) {
+            super(name, min(xs), min(zs), max(xs), max(zs), minY, maxY);
+            this.xs = xs;
+            this.zs = zs;
+        }
+
+        @Override
+        boolean containsColumn(int x, int z) {
+            // Even-odd rule at the block center, the outline runs through the corner blocks' centers
+            double px = x + 0.5, pz = z + 0.5;
+            boolean inside = false;
+            for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+                double xi = xs[i] + 0.5, zi = zs[i] + 0.5;
+                double xj = xs[j] + 0.5, zj = zs[j] + 0.5;
+
+                // Points on an edge belong to the polygon
+                if (onSegment(px, pz, xi, zi, xj, zj)) return true;
+
+                if ((zi > pz) != (zj > pz) && px < (xj - xi) * (pz - zi) / (zj - zi) + xi) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        @Override
+        void addOutline(int minX, int minZ, int maxX, int maxZ, ColumnConsumer out) {
+            for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+                addEdge(xs[j], zs[j], xs[i], zs[i], minX, minZ, maxX, maxZ, out);
+            }
+        }
+
+        /**
+         * Walks the part of an edge near the rectangle in half block steps. A block with a
+         * neighbour on the other side of the edge is at most one block from it along an axis,
+         * plus a quarter block between two steps.
+         */
+        private static void addEdge(int x1, int z1, int x2, int z2, int minX, int minZ, int maxX, int maxZ,
+                                    ColumnConsumer out) {
+            // The stretch of the edge inside the rectangle widened by the neighbours, a slab per axis
+            double from = 0, to = 1;
+            int dx = x2 - x1, dz = z2 - z1;
+            if (dx == 0) {
+                if (x1 < minX - 2 || x1 > maxX + 2) return;
+            } else {
+                double a = (minX - 2 - x1) / (double) dx, b = (maxX + 2 - x1) / (double) dx;
+                from = Math.max(from, Math.min(a, b));
+                to = Math.min(to, Math.max(a, b));
+            }
+            if (dz == 0) {
+                if (z1 < minZ - 2 || z1 > maxZ + 2) return;
+            } else {
+                double a = (minZ - 2 - z1) / (double) dz, b = (maxZ + 2 - z1) / (double) dz;
+                from = Math.max(from, Math.min(a, b));
+                to = Math.min(to, Math.max(a, b));
+            }
+            if (from > to) return;
+
+            int steps = Math.max(Math.abs(dx), Math.abs(dz)) * 2;
+            int first = (int) Math.floor(from * steps), last = (int) Math.ceil(to * steps);
+            for (int step = first; step <= last; step++) {
+                double t = steps == 0 ? 0 : (double) step / steps;
+                double x = x1 + dx * t, z = z1 + dz * t;
+
+                int toX = (int) Math.floor(x + EDGE_REACH), toZ = (int) Math.floor(z + EDGE_REACH);
+                for (int cx = (int) Math.ceil(x - EDGE_REACH); cx <= toX; cx++) {
+                    for (int cz = (int) Math.ceil(z - EDGE_REACH); cz <= toZ; cz++) {
+                        out.accept(cx, cz);
+                    }
+                }
+            }
+        }
+
+        private static boolean onSegment(double px, double pz, double ax, double az, double bx, double bz) {
+            double cross = (bx - ax) * (pz - az) - (bz - az) * (px - ax);
+            return cross == 0
+                    && px >= Math.min(ax, bx) && px <= Math.max(ax, bx)
+                    && pz >= Math.min(az, bz) && pz <= Math.max(az, bz);
+        }
+
+        private static int min(int[] values) {
+            int min = Integer.MAX_VALUE;
+            for (int value : values) min = Math.min(min, value);
+            return min;
+        }
+
+        private static int max(int[] values) {
+            int max = Integer.MIN_VALUE;
+            for (int value : values) max = Math.max(max, value);
+            return max;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package dev.nighter.celestCombat.language;
 
 import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.session.PlayerSession;
+import dev.nighter.celestCombat.session.SessionManager;
 import lombok.RequiredArgsConstructor;
 import net.md_5.bungee.api.ChatMessageType;
 import net.md_5.bungee.api.chat.TextComponent;
@@ -10,18 +12,17 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.Collections;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 @RequiredArgsConstructor
 public class MessageService {
     private final JavaPlugin plugin;
     private final LanguageManager languageManager;
+    private final SessionManager sessionManager;
 
     private static final Map<String, String> EMPTY_PLACEHOLDERS = Collections.emptyMap();
     private final Map<String, Boolean> keyExistsCache = new ConcurrentHashMap<>(128);
 
-    private final Map<String, Long> messageDelayCache = new ConcurrentHashMap<>();
     private static final long MESSAGE_DELAY = 1000L;
 
     public void sendMessage(CommandSender sender, String key) {
@@ -58,13 +59,16 @@ public class MessageService {
     }
 
     private void sendDelayedMessage(Player player, String message, String key, Map<String, String> placeholders) {
-        String cacheKey = player.getUniqueId() + ":" + key;
+        PlayerSession session = sessionManager.getSession(player);
+        Map<String, Long> messageTimes = session != null ? session.getMessageTimes() : null;
         long currentTime = System.currentTimeMillis();
-        Long lastMessageTime = messageDelayCache.get(cacheKey);
+        Long lastMessageTime = messageTimes != null ? messageTimes.get(key) : null;
 
         if (lastMessageTime == null || currentTime - lastMessageTime >= MESSAGE_DELAY) {
             player.sendMessage(message);
-            messageDelayCache.put(cacheKey, currentTime);
+            if (messageTimes != null) {
+                messageTimes.put(key, currentTime);
+            }
 
             String title = languageManager.getTitle(key, placeholders);
             String subtitle = languageManager.getSubtitle(key, placeholders);
@@ -78,11 +82,11 @@ public class MessageService {
         } else {
             Scheduler.runTaskLater(() -> {
                 long newCurrentTime = System.currentTimeMillis();
-                Long newLastMessageTime = messageDelayCache.get(cacheKey);
+                Long newLastMessageTime = messageTimes.get(key);
 
                 if (newLastMessageTime == null || newCurrentTime - newLastMessageTime >= MESSAGE_DELAY) {
                     player.sendMessage(message);
-                    messageDelayCache.put(cacheKey, newCurrentTime);
+                    messageTimes.put(key, newCurrentTime);
 
                     String title = languageManager.getTitle(key, placeholders);
                     String subtitle = languageManager.getSubtitle(key, placeholders);
@@ -148,8 +152,4 @@ public class MessageService {
             }
         }
     }
-
-    public void cleanupPlayerData(UUID playerUUID) {
-        messageDelayCache.entrySet().removeIf(entry -> entry.getKey().startsWith(playerUUID.toString()));
-    }
 }
\ No newline at end of file
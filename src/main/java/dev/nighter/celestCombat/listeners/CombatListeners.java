@@ -2,30 +2,37 @@ package dev.nighter.celestCombat.listeners;
 
 import dev.nighter.celestCombat.CelestCombat;
 import dev.nighter.celestCombat.combat.CombatManager;
+import dev.nighter.celestCombat.combat.CommandMatcher;
 import dev.nighter.celestCombat.combat.DeathAnimationManager;
+import dev.nighter.celestCombat.configs.CelestConfig;
 import dev.nighter.celestCombat.language.MessageService;
 import dev.nighter.celestCombat.protection.NewbieProtectionManager;
 import dev.nighter.celestCombat.rewards.KillRewardManager;
+import dev.nighter.celestCombat.session.PlayerSession;
+import dev.nighter.celestCombat.session.SessionManager;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Projectile;
+import org.bukkit.event.Cancellable;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerKickEvent;
 import org.bukkit.event.player.PlayerToggleFlightEvent;
+import org.bukkit.event.server.ServerLoadEvent;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 public class CombatListeners implements Listener {
     private final CelestCombat plugin;
@@ -34,11 +41,13 @@ public class CombatListeners implements Listener {
     private KillRewardManager killRewardManager;
     private DeathAnimationManager deathAnimationManager;
     private MessageService messageService;
+    private final SessionManager sessionManager;
 
-    private final Map<UUID, Boolean> playerLoggedOutInCombat = new ConcurrentHashMap<>();
-    private final Map<UUID, UUID> lastDamageSource = new ConcurrentHashMap<>();
-    private final Map<UUID, Long> lastDamageTime = new ConcurrentHashMap<>();
-    private static final long DAMAGE_RECORD_CLEANUP_THRESHOLD = TimeUnit.MINUTES.toMillis(5);
+    // Rules and block mode, swapped as one object on reload
+    private volatile CommandMatcher commandMatcher;
+
+    // Outlives the session, so the player can be told about it on their next join
+    private final Set<UUID> playerLoggedOutInCombat = ConcurrentHashMap.newKeySet();
 
     public CombatListeners(CelestCombat plugin) {
         this.plugin = plugin;
@@ -47,6 +56,8 @@ public class CombatListeners implements Listener {
         this.killRewardManager = plugin.getKillRewardManager();
         this.deathAnimationManager = plugin.getDeathAnimationManager();
         this.messageService = plugin.getMessageService();
+        this.sessionManager = plugin.getSessionManager();
+        compileCommandMatcher();
     }
 
     public void reload() {
@@ -55,27 +66,32 @@ public class CombatListeners implements Listener {
         this.killRewardManager = plugin.getKillRewardManager();
         this.deathAnimationManager = plugin.getDeathAnimationManager();
         this.messageService = plugin.getMessageService();
+        compileCommandMatcher();
 
         plugin.debug("CombatListeners managers reloaded successfully");
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onEntityDamageByEntity(EntityDamageByEntityEvent event) {
-        Player attacker = null;
-        Player victim = null;
-
-        if (event.getEntity() instanceof Player) {
-            victim = (Player) event.getEntity();
-        } else {
-            return;
+        if (event.getEntity() instanceof Player victim) {
+            handlePlayerDamage(victim, event.getDamager(), event);
         }
+    }
+
+    /**
+     * Handles damage dealt to a player, runs for every hit and allocates nothing for an accepted PvP hit
+     *
+     * @param victim  The damaged player
+     * @param damager The entity dealing the damage
+     * @param event   The damage event, cancelled when the hit is blocked
+     */
+    void handlePlayerDamage(Player victim, Entity damager, Cancellable event) {
+        Player attacker = null;
 
         if (combatManager.isWorldBlacklisted(victim)) {
             return;
         }
 
-        Entity damager = event.getDamager();
-
         if (damager instanceof Player) {
             attacker = (Player) damager;
         }
@@ -86,8 +102,9 @@ public class CombatListeners implements Listener {
             }
         }
 
-        if (attacker != null && newbieProtectionManager.shouldProtectFromPvP() &&
-            newbieProtectionManager.hasProtection(victim)) {
+        boolean victimProtected = newbieProtectionManager.hasProtection(victim);
+
+        if (attacker != null && victimProtected && newbieProtectionManager.shouldProtectFromPvP()) {
 
             boolean shouldBlock = newbieProtectionManager.handleDamageReceived(victim, attacker);
             if (shouldBlock) {
@@ -97,8 +114,7 @@ public class CombatListeners implements Listener {
             }
         }
 
-        else if (attacker == null && newbieProtectionManager.shouldProtectFromMobs() &&
-            newbieProtectionManager.hasProtection(victim)) {
+        else if (attacker == null && victimProtected && newbieProtectionManager.shouldProtectFromMobs()) {
             event.setCancelled(true);
             plugin.debug("Blocked mob damage to protected newbie: " + victim.getName());
             return;
@@ -108,7 +124,7 @@ public class CombatListeners implements Listener {
             newbieProtectionManager.handleDamageDealt(attacker);
         }
 
-        if (attacker != null && victim != null && !attacker.equals(victim)) {
+        if (attacker != null && !attacker.getUniqueId().equals(victim.getUniqueId())) {
             if (combatManager.isVictimProtectedFromThirdParty(victim, attacker)) {
                 event.setCancelled(true);
 
@@ -140,38 +156,33 @@ public class CombatListeners implements Listener {
                 return;
             }
 
-            lastDamageSource.put(victim.getUniqueId(), attacker.getUniqueId());
-            lastDamageTime.put(victim.getUniqueId(), System.currentTimeMillis());
+            PlayerSession attackerSession = sessionManager.getSession(attacker);
+            PlayerSession victimSession = sessionManager.getSession(victim);
+            if (attackerSession == null || victimSession == null) {
+                return;
+            }
 
-            combatManager.tagPlayer(attacker, victim);
-            combatManager.tagPlayer(victim, attacker);
+            long currentTime = System.currentTimeMillis();
+            victimSession.setLastDamageSource(attackerSession.getUuid());
+            victimSession.setLastDamageTime(currentTime);
 
-            cleanupStaleDamageRecords();
+            combatManager.tagPair(attackerSession, victimSession, currentTime);
         }
     }
 
-    private void cleanupStaleDamageRecords() {
-        long currentTime = System.currentTimeMillis();
-        lastDamageTime.entrySet().removeIf(entry ->
-            (currentTime - entry.getValue()) > DAMAGE_RECORD_CLEANUP_THRESHOLD);
-
-        lastDamageSource.keySet().removeIf(uuid -> !lastDamageTime.containsKey(uuid));
-    }
-
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         UUID playerUUID = player.getUniqueId();
 
         newbieProtectionManager.handlePlayerQuit(player);
-        messageService.cleanupPlayerData(playerUUID);
 
         if (combatManager.isInCombat(player)) {
-            playerLoggedOutInCombat.put(playerUUID, true);
+            playerLoggedOutInCombat.add(playerUUID);
             combatManager.punishCombatLogout(player);
-        } else {
-            playerLoggedOutInCombat.put(playerUUID, false);
         }
+
+        combatManager.clearCooldowns(player);
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -180,10 +191,9 @@ public class CombatListeners implements Listener {
         UUID playerUUID = player.getUniqueId();
 
         newbieProtectionManager.handlePlayerQuit(player);
-        messageService.cleanupPlayerData(playerUUID);
 
         if (combatManager.isInCombat(player)) {
-            if (plugin.getConfig().getBoolean("combat.exempt_admin_kick", true)) {
+            if (plugin.getCelestConfig().isExemptAdminKick()) {
                 Player opponent = combatManager.getCombatOpponent(player);
                 combatManager.removeFromCombatSilently(player);
 
@@ -192,7 +202,7 @@ public class CombatListeners implements Listener {
                 }
             } else {
                 Player opponent = combatManager.getCombatOpponent(player);
-                playerLoggedOutInCombat.put(playerUUID, true);
+                playerLoggedOutInCombat.add(playerUUID);
 
                 combatManager.punishCombatLogout(player);
 
@@ -215,7 +225,8 @@ public class CombatListeners implements Listener {
     public void onPlayerDeath(PlayerDeathEvent event) {
         Player victim = event.getEntity();
         Player killer = victim.getKiller();
-        UUID victimId = victim.getUniqueId();
+        PlayerSession victimSession = sessionManager.getSession(victim);
+        UUID lastAttackerUuid = victimSession != null ? victimSession.getLastDamageSource() : null;
 
         if (newbieProtectionManager.hasProtection(victim)) {
             newbieProtectionManager.removeProtection(victim, false);
@@ -235,8 +246,7 @@ public class CombatListeners implements Listener {
             if (opponent != null && opponent.isOnline()) {
                 killRewardManager.giveKillReward(opponent, victim);
                 deathAnimationManager.performDeathAnimation(victim, opponent);
-            } else if (lastDamageSource.containsKey(victimId)) {
-                UUID lastAttackerUuid = lastDamageSource.get(victimId);
+            } else if (lastAttackerUuid != null) {
                 Player lastAttacker = plugin.getServer().getPlayer(lastAttackerUuid);
 
                 if (lastAttacker != null && lastAttacker.isOnline() && !lastAttacker.equals(victim)) {
@@ -253,14 +263,13 @@ public class CombatListeners implements Listener {
             if (opponent != null) {
                 combatManager.removeFromCombat(opponent);
             }
-
-            lastDamageSource.remove(victimId);
-            lastDamageTime.remove(victimId);
         } else {
             deathAnimationManager.performDeathAnimation(victim, null);
+        }
 
-            lastDamageSource.remove(victimId);
-            lastDamageTime.remove(victimId);
+        if (victimSession != null) {
+            victimSession.setLastDamageSource(null);
+            victimSession.setLastDamageTime(0L);
         }
     }
 
@@ -271,17 +280,37 @@ public class CombatListeners implements Listener {
 
         newbieProtectionManager.handlePlayerJoin(player);
 
-        if (playerLoggedOutInCombat.containsKey(playerUUID)) {
-            if (playerLoggedOutInCombat.get(playerUUID)) {
-                Map<String, String> placeholders = new HashMap<>();
-                placeholders.put("player", player.getName());
-                messageService.sendMessage(player, "player_died_combat_logout", placeholders);
-            }
-            playerLoggedOutInCombat.remove(playerUUID);
+        if (playerLoggedOutInCombat.remove(playerUUID)) {
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("player", player.getName());
+            messageService.sendMessage(player, "player_died_combat_logout", placeholders);
+        }
+    }
+
+    @EventHandler
+    public void onServerLoad(ServerLoadEvent event) {
+        // Commands of plugins that enabled after us are known now, so aliases can be resolved
+        compileCommandMatcher();
+    }
+
+    private void compileCommandMatcher() {
+        CelestConfig config = plugin.getCelestConfig();
+        List<String> rules = config.isCommandBlacklistMode() ? config.getBlockedCommands() : config.getAllowedCommands();
+
+        this.commandMatcher = CommandMatcher.compile(rules, config.isCommandBlacklistMode(), plugin.getServer().getCommandMap());
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onPlayerCommandSend(PlayerCommandSendEvent event) {
+        Player player = event.getPlayer();
+
+        if (combatManager.isWorldBlacklisted(player) || !combatManager.isInCombat(player)) {
+            return;
         }
 
-        lastDamageSource.remove(playerUUID);
-        lastDamageTime.remove(playerUUID);
+        // Tagged players don't get blocked commands in their tree, so they can't tab-complete them
+        CommandMatcher matcher = commandMatcher;
+        event.getCommands().removeIf(matcher::blocksLabel);
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -293,41 +322,17 @@ public class CombatListeners implements Listener {
         }
 
         if (combatManager.isInCombat(player)) {
-            String command = event.getMessage().split(" ")[0].toLowerCase().substring(1);
-
-            String blockMode = plugin.getConfig().getString("combat.command_block_mode", "whitelist").toLowerCase();
-
-            boolean shouldBlock = false;
-
-            if ("blacklist".equalsIgnoreCase(blockMode)) {
-                List<String> blockedCommands = plugin.getConfig().getStringList("combat.blocked_commands");
+            String message = event.getMessage();
 
-                for (String blockedCmd : blockedCommands) {
-                    if (command.equalsIgnoreCase(blockedCmd) ||
-                        (blockedCmd.endsWith("*") && command.startsWith(blockedCmd.substring(0, blockedCmd.length() - 1)))) {
-                        shouldBlock = true;
-                        break;
-                    }
-                }
-            } else {
-                List<String> allowedCommands = plugin.getConfig().getStringList("combat.allowed_commands");
-                shouldBlock = true;
-
-                for (String allowedCmd : allowedCommands) {
-                    if (command.equalsIgnoreCase(allowedCmd) ||
-                        (allowedCmd.endsWith("*") && command.startsWith(allowedCmd.substring(0, allowedCmd.length() - 1)))) {
-                        shouldBlock = false;
-                        break;
-                    }
-                }
-            }
+            // Read once, a reload may swap the matcher mid-event
+            CommandMatcher matcher = commandMatcher;
 
-            if (shouldBlock) {
+            if (matcher.blocks(message)) {
                 event.setCancelled(true);
 
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("player", player.getName());
-                placeholders.put("command", command);
+                placeholders.put("command", CommandMatcher.label(message));
                 placeholders.put("time", String.valueOf(combatManager.getRemainingCombatTime(player)));
                 messageService.sendMessage(player, "command_blocked_in_combat", placeholders);
             }
@@ -349,7 +354,5 @@ public class CombatListeners implements Listener {
 
     public void shutdown() {
         playerLoggedOutInCombat.clear();
-        lastDamageSource.clear();
-        lastDamageTime.clear();
     }
 }
\ No newline at end of file
@@ -1,8 +1,8 @@
 package dev.nighter.celestCombat.listeners;
 
 import dev.nighter.celestCombat.CelestCombat;
-import dev.nighter.celestCombat.Scheduler;
 import dev.nighter.celestCombat.combat.CombatManager;
+import dev.nighter.celestCombat.combat.CooldownType;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Material;
 import org.bukkit.entity.EnderPearl;
@@ -26,7 +26,6 @@ public class EnderPearlListener implements Listener {
     private final CelestCombat plugin;
     private final CombatManager combatManager;
 
-    private final Map<UUID, Scheduler.Task> pearlCountdownTasks = new ConcurrentHashMap<>();
     private final Map<Integer, UUID> activePearls = new ConcurrentHashMap<>();
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -42,10 +41,10 @@ public class EnderPearlListener implements Listener {
         if (item != null && item.getType() == Material.ENDER_PEARL &&
             (action == Action.RIGHT_CLICK_AIR || action == Action.RIGHT_CLICK_BLOCK)) {
 
-            if (combatManager.isEnderPearlOnCooldown(player)) {
+            if (combatManager.isOnCooldown(player, CooldownType.ENDER_PEARL)) {
                 event.setCancelled(true);
 
-                int remainingTime = combatManager.getRemainingEnderPearlCooldown(player);
+                int remainingTime = combatManager.getRemainingCooldown(player, CooldownType.ENDER_PEARL);
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("player", player.getName());
                 placeholders.put("time", String.valueOf(remainingTime));
@@ -63,17 +62,16 @@ public class EnderPearlListener implements Listener {
                 return;
             }
 
-            if (combatManager.isEnderPearlOnCooldown(player)) {
+            if (combatManager.isOnCooldown(player, CooldownType.ENDER_PEARL)) {
                 event.setCancelled(true);
 
-                int remainingTime = combatManager.getRemainingEnderPearlCooldown(player);
+                int remainingTime = combatManager.getRemainingCooldown(player, CooldownType.ENDER_PEARL);
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("player", player.getName());
                 placeholders.put("time", String.valueOf(remainingTime));
                 plugin.getMessageService().sendMessage(player, "enderpearl_cooldown", placeholders);
             } else {
-                combatManager.setEnderPearlCooldown(player);
-                startPearlCountdown(player);
+                combatManager.setCooldown(player, CooldownType.ENDER_PEARL);
                 activePearls.put(event.getEntity().getEntityId(), player.getUniqueId());
             }
         }
@@ -95,54 +93,7 @@ public class EnderPearlListener implements Listener {
         }
     }
 
-    private void startPearlCountdown(Player player) {
-        if (player == null) return;
-
-        UUID playerUUID = player.getUniqueId();
-
-        Scheduler.Task existingTask = pearlCountdownTasks.get(playerUUID);
-        if (existingTask != null) {
-            existingTask.cancel();
-        }
-
-        long updateInterval = 20L;
-
-        Scheduler.Task task = Scheduler.runTaskTimer(() -> {
-            if (!player.isOnline()) {
-                cancelPearlCountdown(playerUUID);
-                return;
-            }
-
-            if (!combatManager.isEnderPearlOnCooldown(player)) {
-                cancelPearlCountdown(playerUUID);
-                return;
-            }
-
-            int remainingTime = combatManager.getRemainingEnderPearlCooldown(player);
-
-            Map<String, String> placeholders = new HashMap<>();
-            placeholders.put("player", player.getName());
-            placeholders.put("time", String.valueOf(remainingTime));
-
-            if (!combatManager.isInCombat(player)) {
-                plugin.getMessageService().sendMessage(player, "pearl_only_countdown", placeholders);
-            }
-
-        }, 0L, updateInterval);
-
-        pearlCountdownTasks.put(playerUUID, task);
-    }
-
-    private void cancelPearlCountdown(UUID playerUUID) {
-        Scheduler.Task task = pearlCountdownTasks.remove(playerUUID);
-        if (task != null) {
-            task.cancel();
-        }
-    }
-
     public void shutdown() {
-        pearlCountdownTasks.values().forEach(Scheduler.Task::cancel);
-        pearlCountdownTasks.clear();
         activePearls.clear();
     }
 }
\ No newline at end of file
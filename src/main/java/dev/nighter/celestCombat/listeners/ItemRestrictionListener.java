@@ -2,18 +2,28 @@ package dev.nighter.celestCombat.listeners;
 
 import dev.nighter.celestCombat.CelestCombat;
 import dev.nighter.celestCombat.combat.CombatManager;
+import dev.nighter.celestCombat.combat.CooldownType;
+import dev.nighter.celestCombat.configs.CelestConfig;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
+import org.bukkit.entity.Trident;
+import org.bukkit.entity.WindCharge;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.entity.EntityResurrectEvent;
+import org.bukkit.event.entity.EntityToggleGlideEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemConsumeEvent;
-import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RequiredArgsConstructor
@@ -39,64 +49,129 @@ public class ItemRestrictionListener implements Listener {
         return formattedName.toString().trim();
     }
 
-    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
-    public void onPlayerItemConsume(PlayerItemConsumeEvent event) {
-        if (!plugin.getConfig().getBoolean("combat.item_restrictions.enabled", true)) {
+    @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+    public void onCooldownItemConsume(PlayerItemConsumeEvent event) {
+        Material type = event.getItem().getType();
+        CooldownType cooldownType;
+
+        if (type == Material.GOLDEN_APPLE || type == Material.ENCHANTED_GOLDEN_APPLE) {
+            cooldownType = CooldownType.GOLDEN_APPLE;
+        } else if (type == Material.CHORUS_FRUIT) {
+            cooldownType = CooldownType.CHORUS_FRUIT;
+        } else {
             return;
         }
 
-        Player player = event.getPlayer();
-        ItemStack item = event.getItem();
+        checkAndApplyCooldown(event.getPlayer(), cooldownType, event);
+    }
 
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onWindChargeLaunch(ProjectileLaunchEvent event) {
+        if (event.getEntity() instanceof WindCharge && event.getEntity().getShooter() instanceof Player player) {
+            checkAndApplyCooldown(player, CooldownType.WIND_CHARGE, event);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onTotemResurrect(EntityResurrectEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            checkAndApplyCooldown(player, CooldownType.TOTEM, event);
+        }
+    }
+
+    private void checkAndApplyCooldown(Player player, CooldownType type, Cancellable event) {
         if (combatManager.isWorldBlacklisted(player)) {
             return;
         }
 
-        if (combatManager.isInCombat(player)) {
-            List<String> disabledItems = plugin.getConfig().getStringList("combat.item_restrictions.disabled_items");
+        if (combatManager.isOnCooldown(player, type)) {
+            event.setCancelled(true);
 
-            if (isItemDisabled(item.getType(), disabledItems)) {
-                event.setCancelled(true);
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("player", player.getName());
+            placeholders.put("item", type.getDisplayName());
+            placeholders.put("time", String.valueOf(combatManager.getRemainingCooldown(player, type)));
+            plugin.getMessageService().sendMessage(player, "item_cooldown", placeholders);
+        } else {
+            combatManager.setCooldown(player, type);
+        }
+    }
 
-                Map<String, String> placeholders = new HashMap<>();
-                placeholders.put("player", player.getName());
-                placeholders.put("item", formatItemName(item.getType()));
-                plugin.getMessageService().sendMessage(player, "item_use_blocked_in_combat", placeholders);
-            }
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlayerItemConsume(PlayerItemConsumeEvent event) {
+        Material type = event.getItem().getType();
+        if (isRestricted(event.getPlayer(), type)) {
+            event.setCancelled(true);
+            sendBlockedMessage(event.getPlayer(), type);
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
-    public void onPlayerMoveEvent(PlayerMoveEvent event) {
-        if (!plugin.getConfig().getBoolean("combat.item_restrictions.enabled", true)) {
+    public void onGlideToggle(EntityToggleGlideEvent event) {
+        // Only the start of a glide, landing is never blocked
+        if (event.isGliding() && event.getEntity() instanceof Player player && isRestricted(player, Material.ELYTRA)) {
+            event.setCancelled(true);
+            sendBlockedMessage(player, Material.ELYTRA);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
+    public void onRiptideStart(PlayerInteractEvent event) {
+        Action action = event.getAction();
+        ItemStack item = event.getItem();
+        if (item == null || item.getType() != Material.TRIDENT ||
+            (action != Action.RIGHT_CLICK_AIR && action != Action.RIGHT_CLICK_BLOCK)) {
             return;
         }
 
-        Player player = event.getPlayer();
+        // Riptide can't be cancelled once it fires, so it is blocked when the trident is charged
+        if (item.containsEnchantment(Enchantment.RIPTIDE) && isRestricted(event.getPlayer(), Material.TRIDENT)) {
+            event.setUseItemInHand(Event.Result.DENY);
+            sendBlockedMessage(event.getPlayer(), Material.TRIDENT);
+        }
+    }
 
-        if (combatManager.isWorldBlacklisted(player)) {
+    // Runs before the cooldown handlers so a blocked launch doesn't start a cooldown
+    @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
+    public void onRestrictedLaunch(ProjectileLaunchEvent event) {
+        Material type;
+        if (event.getEntity() instanceof WindCharge) {
+            type = Material.WIND_CHARGE;
+        } else if (event.getEntity() instanceof Trident) {
+            type = Material.TRIDENT;
+        } else {
             return;
         }
 
-        if (combatManager.isInCombat(player)) {
-            List<String> disabledItems = plugin.getConfig().getStringList("combat.item_restrictions.disabled_items");
-
-            if (disabledItems.contains("ELYTRA") && player.isGliding()) {
-                player.setGliding(false);
+        if (event.getEntity().getShooter() instanceof Player player && isRestricted(player, type)) {
+            event.setCancelled(true);
+            sendBlockedMessage(player, type);
+        }
+    }
 
-                Map<String, String> placeholders = new HashMap<>();
-                placeholders.put("player", player.getName());
-                placeholders.put("item", "Elytra");
-                plugin.getMessageService().sendMessage(player, "item_use_blocked_in_combat", placeholders);
-            }
+    /**
+     * Applies the movement restrictions to a player who was just tagged, called on the player's
+     * own thread by the combat manager. Someone already gliding never fires a toggle event.
+     */
+    public void enforceOnTag(Player player) {
+        if (player.isGliding() && isRestricted(player, Material.ELYTRA)) {
+            player.setGliding(false);
+            sendBlockedMessage(player, Material.ELYTRA);
         }
     }
 
-    private boolean isItemDisabled(Material itemType, List<String> disabledItems) {
-        return disabledItems.stream()
-            .anyMatch(disabledItem ->
-                itemType.name().equalsIgnoreCase(disabledItem) ||
-                    itemType.name().contains(disabledItem)
-            );
+    private boolean isRestricted(Player player, Material type) {
+        CelestConfig config = plugin.getCelestConfig();
+        return config.isItemRestrictionsEnabled()
+            && config.getDisabledItems().contains(type)
+            && !combatManager.isWorldBlacklisted(player)
+            && combatManager.isInCombat(player);
+    }
+
+    private void sendBlockedMessage(Player player, Material type) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("player", player.getName());
+        placeholders.put("item", formatItemName(type));
+        plugin.getMessageService().sendMessage(player, "item_use_blocked_in_combat", placeholders);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package dev.nighter.celestCombat.listeners;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.combat.CombatManager;
+import dev.nighter.celestCombat.session.PlayerSession;
+import dev.nighter.celestCombat.session.SessionManager;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The plugin's only PlayerMoveEvent handler.
+ *
+ * Head rotation, moves inside the same block and moves of untagged players are dropped
+ * here once, the remaining moves are handed to every registered {@link MovementConsumer}.
+ */
+public class MoveDispatcher implements Listener {
+    private static final long REPORT_INTERVAL_TICKS = 1200L; // 1 minute
+
+    // Each session tracks which consumers it fed in one int
+    private static final int MAX_CONSUMERS = Integer.SIZE;
+
+    private final CombatManager combatManager;
+    private final SessionManager sessionManager;
+
+    private volatile MovementConsumer[] consumers = new MovementConsumer[0];
+    private volatile LongAdder[] processed = new LongAdder[0];
+    private final LongAdder dispatched = new LongAdder();
+    private final Scheduler.Task reportTask;
+
+    public MoveDispatcher(CelestCombat plugin, CombatManager combatManager) {
+        this.combatManager = combatManager;
+        this.sessionManager = plugin.getSessionManager();
+
+        // The report is only ever logged in debug mode
+        if (plugin.isDebugMode()) {
+            this.reportTask = Scheduler.runTaskTimerAsync(() -> {
+                if (dispatched.sum() > 0) {
+                    plugin.debug("Move dispatcher: " + getProcessedMoves());
+                }
+            }, REPORT_INTERVAL_TICKS, REPORT_INTERVAL_TICKS);
+        } else {
+            this.reportTask = null;
+        }
+    }
+
+    /**
+     * Registers a consumer, consumers are called in registration order
+     */
+    public synchronized void register(MovementConsumer consumer) {
+        if (consumers.length == MAX_CONSUMERS) {
+            throw new IllegalStateException("At most " + MAX_CONSUMERS + " movement consumers can be registered");
+        }
+
+        MovementConsumer[] newConsumers = Arrays.copyOf(consumers, consumers.length + 1);
+        LongAdder[] newProcessed = Arrays.copyOf(processed, processed.length + 1);
+        newConsumers[newConsumers.length - 1] = consumer;
+        newProcessed[newProcessed.length - 1] = new LongAdder();
+
+        this.processed = newProcessed;
+        this.consumers = newConsumers;
+    }
+
+    /**
+     * Gets how many moves were dispatched in total and how many each consumer processed
+     */
+    public Map<String, Long> getProcessedMoves() {
+        MovementConsumer[] current = consumers;
+        LongAdder[] counts = processed;
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("dispatched", dispatched.sum());
+        for (int i = 0; i < current.length; i++) {
+            result.put(current[i].getName(), counts[i].sum());
+        }
+        return result;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+
+        if (from.getBlockX() == to.getBlockX() &&
+            from.getBlockY() == to.getBlockY() &&
+            from.getBlockZ() == to.getBlockZ() &&
+            from.getWorld() == to.getWorld()) {
+            return;
+        }
+
+        MovementConsumer[] current = consumers;
+        if (current.length == 0) return;
+
+        Player player = event.getPlayer();
+        PlayerSession session = sessionManager.getSession(player);
+        if (session == null) return;
+
+        // Let consumers drop their state once, instead of on every move they don't handle
+        int tracked = session.getTrackedConsumers();
+
+        if (!combatManager.isInCombat(player)) {
+            if (tracked != 0) {
+                session.setTrackedConsumers(0);
+                for (int i = 0; i < current.length; i++) {
+                    if ((tracked & (1 << i)) != 0) {
+                        current[i].release(player, session);
+                    }
+                }
+            }
+            return;
+        }
+
+        dispatched.increment();
+
+        LongAdder[] counts = processed;
+        World world = to.getWorld();
+        int nowTracked = tracked;
+        for (int i = 0; i < current.length; i++) {
+            MovementConsumer consumer = current[i];
+            int bit = 1 << i;
+            if (!consumer.isEnabledInWorld(world)) {
+                if ((nowTracked & bit) != 0) {
+                    nowTracked &= ~bit;
+                    consumer.release(player, session);
+                }
+                continue;
+            }
+
+            nowTracked |= bit;
+            consumer.onMove(player, session, from, to);
+            counts[i].increment();
+        }
+
+        if (nowTracked != tracked) {
+            session.setTrackedConsumers(nowTracked);
+        }
+    }
+
+    public void shutdown() {
+        if (reportTask != null) {
+            reportTask.cancel();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dev.nighter.celestCombat.listeners;
+
+import dev.nighter.celestCombat.session.PlayerSession;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+/**
+ * A feature that reacts to tagged players moving between blocks.
+ * Consumers are registered with the {@link MoveDispatcher} instead of listening to
+ * PlayerMoveEvent themselves.
+ */
+public interface MovementConsumer {
+
+    /**
+     * Name used when reporting move counts
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Checks whether this consumer is active in a world, moves in other worlds release the player
+     */
+    boolean isEnabledInWorld(World world);
+
+    /**
+     * Called when a tagged player moves to another block
+     *
+     * @param player  The moving player
+     * @param session The player's session
+     * @param from    The block location the player left
+     * @param to      The block location the player moves to
+     */
+    void onMove(Player player, PlayerSession session, Location from, Location to);
+
+    /**
+     * Called once when a player this consumer was tracking is no longer tagged,
+     * or moved into a world the consumer is not enabled in
+     */
+    void release(Player player, PlayerSession session);
+}
@@ -3,6 +3,8 @@ package dev.nighter.celestCombat.listeners;
 import dev.nighter.celestCombat.CelestCombat;
 import dev.nighter.celestCombat.Scheduler;
 import dev.nighter.celestCombat.combat.CombatManager;
+import dev.nighter.celestCombat.combat.CooldownType;
+import dev.nighter.celestCombat.session.PlayerSession;
 import lombok.RequiredArgsConstructor;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -29,9 +31,7 @@ public class TridentListener implements Listener {
     private final CelestCombat plugin;
     private final CombatManager combatManager;
 
-    private final Map<UUID, Scheduler.Task> tridentCountdownTasks = new ConcurrentHashMap<>();
     private final Map<Integer, UUID> activeTridents = new ConcurrentHashMap<>();
-    private final Map<UUID, Location> riptideOriginalLocations = new ConcurrentHashMap<>();
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onTridentUse(PlayerInteractEvent event) {
@@ -53,15 +53,18 @@ public class TridentListener implements Listener {
             }
 
             if (item.containsEnchantment(Enchantment.RIPTIDE)) {
-                if (combatManager.isTridentOnCooldown(player)) {
+                if (combatManager.isOnCooldown(player, CooldownType.TRIDENT)) {
                     event.setCancelled(true);
                     sendCooldownMessage(player);
                     return;
                 } else {
-                    riptideOriginalLocations.put(player.getUniqueId(), player.getLocation().clone());
+                    PlayerSession session = plugin.getSessionManager().getSession(player);
+                    if (session != null) {
+                        session.setRiptideOrigin(player.getLocation().clone());
+                    }
                 }
             } else {
-                if (combatManager.isTridentOnCooldown(player)) {
+                if (combatManager.isOnCooldown(player, CooldownType.TRIDENT)) {
                     event.setCancelled(true);
                     sendCooldownMessage(player);
                 }
@@ -83,16 +86,15 @@ public class TridentListener implements Listener {
             return;
         }
 
-        if (combatManager.isTridentOnCooldown(player)) {
+        if (combatManager.isOnCooldown(player, CooldownType.TRIDENT)) {
             sendCooldownMessage(player);
             rollbackRiptide(player);
             return;
         }
 
-        combatManager.setTridentCooldown(player);
-        startTridentCountdown(player);
+        combatManager.setCooldown(player, CooldownType.TRIDENT);
         combatManager.refreshCombatOnTridentLand(player);
-        riptideOriginalLocations.remove(player.getUniqueId());
+        takeRiptideOrigin(player);
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -110,12 +112,11 @@ public class TridentListener implements Listener {
                 return;
             }
 
-            if (combatManager.isTridentOnCooldown(player)) {
+            if (combatManager.isOnCooldown(player, CooldownType.TRIDENT)) {
                 event.setCancelled(true);
                 sendCooldownMessage(player);
             } else {
-                combatManager.setTridentCooldown(player);
-                startTridentCountdown(player);
+                combatManager.setCooldown(player, CooldownType.TRIDENT);
                 activeTridents.put(event.getEntity().getEntityId(), player.getUniqueId());
             }
         }
@@ -138,7 +139,7 @@ public class TridentListener implements Listener {
     }
 
     private void rollbackRiptide(Player player) {
-        Location originalLocation = riptideOriginalLocations.remove(player.getUniqueId());
+        Location originalLocation = takeRiptideOrigin(player);
 
         if (originalLocation != null) {
             Scheduler.runTaskLater(() -> {
@@ -157,49 +158,15 @@ public class TridentListener implements Listener {
         }
     }
 
-    private void startTridentCountdown(Player player) {
-        if (player == null) return;
-
-        UUID playerUUID = player.getUniqueId();
-
-        Scheduler.Task existingTask = tridentCountdownTasks.get(playerUUID);
-        if (existingTask != null) {
-            existingTask.cancel();
+    private Location takeRiptideOrigin(Player player) {
+        PlayerSession session = plugin.getSessionManager().getSession(player);
+        if (session == null) {
+            return null;
         }
 
-        long updateInterval = 20L;
-
-        Scheduler.Task task = Scheduler.runTaskTimer(() -> {
-            if (!player.isOnline()) {
-                cancelTridentCountdown(playerUUID);
-                return;
-            }
-
-            if (!combatManager.isTridentOnCooldown(player)) {
-                cancelTridentCountdown(playerUUID);
-                return;
-            }
-
-            int remainingTime = combatManager.getRemainingTridentCooldown(player);
-
-            Map<String, String> placeholders = new HashMap<>();
-            placeholders.put("player", player.getName());
-            placeholders.put("time", String.valueOf(remainingTime));
-
-            if (!combatManager.isInCombat(player)) {
-                plugin.getMessageService().sendMessage(player, "trident_only_countdown", placeholders);
-            }
-
-        }, 0L, updateInterval);
-
-        tridentCountdownTasks.put(playerUUID, task);
-    }
-
-    private void cancelTridentCountdown(UUID playerUUID) {
-        Scheduler.Task task = tridentCountdownTasks.remove(playerUUID);
-        if (task != null) {
-            task.cancel();
-        }
+        Location origin = session.getRiptideOrigin();
+        session.setRiptideOrigin(null);
+        return origin;
     }
 
     private void sendBannedMessage(Player player) {
@@ -209,7 +176,7 @@ public class TridentListener implements Listener {
     }
 
     private void sendCooldownMessage(Player player) {
-        int remainingTime = combatManager.getRemainingTridentCooldown(player);
+        int remainingTime = combatManager.getRemainingCooldown(player, CooldownType.TRIDENT);
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("player", player.getName());
         placeholders.put("time", String.valueOf(remainingTime));
@@ -217,9 +184,6 @@ public class TridentListener implements Listener {
     }
 
     public void shutdown() {
-        tridentCountdownTasks.values().forEach(Scheduler.Task::cancel);
-        tridentCountdownTasks.clear();
         activeTridents.clear();
-        riptideOriginalLocations.clear();
     }
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package dev.nighter.celestCombat.protection;
 
 import dev.nighter.celestCombat.CelestCombat;
 import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.configs.WorldPolicyTable;
+import dev.nighter.celestCombat.session.PlayerSession;
 import lombok.Getter;
 import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarStyle;
 import org.bukkit.boss.BossBar;
@@ -18,15 +21,13 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class NewbieProtectionManager {
     private final CelestCombat plugin;
+    private final WorldPolicyTable worldPolicies;
     private final File protectionFile;
     private FileConfiguration protectionConfig;
 
     // Protection storage - UUID -> expiration time in milliseconds
     @Getter private final Map<UUID, Long> protectedPlayers = new ConcurrentHashMap<>();
 
-    // Boss bars for countdown display
-    private final Map<UUID, BossBar> protectionBossBars = new ConcurrentHashMap<>();
-
     // Configuration cache
     private boolean enabled;
     private long protectionDurationTicks;
@@ -36,7 +37,6 @@ public class NewbieProtectionManager {
     private String bossBarTitle;
     private BarColor bossBarColor;
     private BarStyle bossBarStyle;
-    private Map<String, Boolean> worldProtectionSettings = new ConcurrentHashMap<>();
     private boolean protectFromPvP;
     private boolean protectFromMobs;
     private boolean removeOnDamageDealt;
@@ -53,6 +53,7 @@ public class NewbieProtectionManager {
 
     public NewbieProtectionManager(CelestCombat plugin) {
         this.plugin = plugin;
+        this.worldPolicies = plugin.getWorldPolicyTable();
         this.protectionFile = new File(plugin.getDataFolder(), "newbie_protection_data.yml");
 
         // Load configuration
@@ -103,30 +104,12 @@ public class NewbieProtectionManager {
         this.protectFromMobs = config.getBoolean("newbie_protection.protect_from_mobs", false);
         this.removeOnDamageDealt = config.getBoolean("newbie_protection.remove_on_damage_dealt", true);
 
-        loadWorldProtectionSettings();
-
         plugin.debug("NewbieProtectionManager config loaded - Enabled: " + enabled +
                 ", Duration: " + protectionDurationSeconds + "s" +
                 ", Boss bar: " + useBossBar +
                 ", Action bar: " + useActionBar);
     }
 
-    /**
-     * Loads per-world protection settings
-     */
-    private void loadWorldProtectionSettings() {
-        worldProtectionSettings.clear();
-
-        if (plugin.getConfig().isConfigurationSection("newbie_protection.worlds")) {
-            for (String worldName : Objects.requireNonNull(plugin.getConfig().getConfigurationSection("newbie_protection.worlds")).getKeys(false)) {
-                boolean enabledInWorld = plugin.getConfig().getBoolean("newbie_protection.worlds." + worldName, true);
-                worldProtectionSettings.put(worldName, enabledInWorld);
-            }
-        }
-
-        plugin.debug("Loaded world-specific newbie protection settings: " + worldProtectionSettings);
-    }
-
     /**
      * Loads protection data from the YAML file
      */
@@ -221,9 +204,8 @@ public class NewbieProtectionManager {
     /**
      * Checks if newbie protection is enabled for a specific world
      */
-    public boolean isEnabledInWorld(String worldName) {
-        if (!enabled) return false;
-        return worldProtectionSettings.getOrDefault(worldName, true);
+    public boolean isEnabledInWorld(World world) {
+        return enabled && worldPolicies.get(world).isNewbieProtection();
     }
 
     /**
@@ -234,9 +216,8 @@ public class NewbieProtectionManager {
             return;
         }
 
-        String worldName = player.getWorld().getName();
-        if (!isEnabledInWorld(worldName)) {
-            plugin.debug("Newbie protection not enabled in world: " + worldName);
+        if (!isEnabledInWorld(player.getWorld())) {
+            plugin.debug("Newbie protection not enabled in world: " + player.getWorld().getName());
             return;
         }
 
@@ -267,8 +248,7 @@ public class NewbieProtectionManager {
             return false;
         }
 
-        String worldName = player.getWorld().getName();
-        if (!isEnabledInWorld(worldName)) {
+        if (!isEnabledInWorld(player.getWorld())) {
             return false;
         }
 
@@ -299,10 +279,7 @@ public class NewbieProtectionManager {
 
         if (hadProtection) {
             // Remove boss bar
-            BossBar bossBar = protectionBossBars.remove(playerUUID);
-            if (bossBar != null) {
-                bossBar.removeAll();
-            }
+            removeBossBar(playerUUID);
 
             plugin.debug("Removed newbie protection from " + player.getName());
         }
@@ -365,10 +342,11 @@ public class NewbieProtectionManager {
     private void createBossBar(Player player) {
         if (!useBossBar || player == null) return;
 
-        UUID playerUUID = player.getUniqueId();
+        PlayerSession session = plugin.getSessionManager().getSession(player);
+        if (session == null) return;
 
         // Remove existing boss bar if any
-        BossBar existingBar = protectionBossBars.get(playerUUID);
+        BossBar existingBar = session.getProtectionBossBar();
         if (existingBar != null) {
             existingBar.removeAll();
         }
@@ -381,7 +359,7 @@ public class NewbieProtectionManager {
         bossBar.setProgress(1.0);
         bossBar.addPlayer(player);
 
-        protectionBossBars.put(playerUUID, bossBar);
+        session.setProtectionBossBar(bossBar);
     }
 
     /**
@@ -390,15 +368,15 @@ public class NewbieProtectionManager {
     private void updateBossBar(Player player) {
         if (!useBossBar || player == null) return;
 
-        UUID playerUUID = player.getUniqueId();
-        BossBar bossBar = protectionBossBars.get(playerUUID);
+        PlayerSession session = plugin.getSessionManager().getSession(player);
+        BossBar bossBar = session != null ? session.getProtectionBossBar() : null;
 
         if (bossBar == null) return;
 
         long remainingTime = getRemainingTime(player);
         if (remainingTime <= 0) {
             bossBar.removeAll();
-            protectionBossBars.remove(playerUUID);
+            session.setProtectionBossBar(null);
             return;
         }
 
@@ -497,12 +475,7 @@ public class NewbieProtectionManager {
                     iterator.remove();
 
                     // Remove boss bar on main thread
-                    Scheduler.runTask(() -> {
-                        BossBar bossBar = protectionBossBars.remove(playerUUID);
-                        if (bossBar != null) {
-                            bossBar.removeAll();
-                        }
-                    });
+                    Scheduler.runTask(() -> removeBossBar(playerUUID));
 
                     removedCount++;
                 }
@@ -565,10 +538,20 @@ public class NewbieProtectionManager {
     public void handlePlayerQuit(Player player) {
         if (player == null) return;
 
-        UUID playerUUID = player.getUniqueId();
-        BossBar bossBar = protectionBossBars.remove(playerUUID);
+        removeBossBar(player.getUniqueId());
+    }
+
+    /**
+     * Removes the boss bar of a player, if they have one
+     */
+    private void removeBossBar(UUID playerUUID) {
+        PlayerSession session = plugin.getSessionManager().getSession(playerUUID);
+        if (session == null) return;
+
+        BossBar bossBar = session.getProtectionBossBar();
         if (bossBar != null) {
             bossBar.removeAll();
+            session.setProtectionBossBar(null);
         }
     }
 
@@ -604,10 +587,13 @@ public class NewbieProtectionManager {
         }
 
         // Remove all boss bars
-        for (BossBar bossBar : protectionBossBars.values()) {
-            bossBar.removeAll();
+        for (PlayerSession session : plugin.getSessionManager().getSessions()) {
+            BossBar bossBar = session.getProtectionBossBar();
+            if (bossBar != null) {
+                bossBar.removeAll();
+                session.setProtectionBossBar(null);
+            }
         }
-        protectionBossBars.clear();
 
         // Save data
         saveProtectionData(true);
@@ -0,0 +1,77 @@
+package dev.nighter.celestCombat.session;
+
+import dev.nighter.celestCombat.hooks.protection.BarrierPacer;
+import dev.nighter.celestCombat.hooks.protection.BarrierSet;
+import dev.nighter.celestCombat.hooks.protection.ClaimTrustCache;
+import dev.nighter.celestCombat.hooks.protection.SafezoneIndex;
+import lombok.Getter;
+import lombok.Setter;
+import org.bukkit.Location;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds all per-player plugin state for one online player.
+ *
+ * A session is created when the player joins and dropped as a whole when they quit,
+ * so none of the fields below need their own cleanup.
+ */
+@Getter
+public class PlayerSession {
+    private final UUID uuid;
+    private final Player player;
+    // Dense index, reused after the session is dropped
+    private final int index;
+
+    // Combat tag - an end time of 0 means the player is not tagged
+    @Setter private volatile long combatEndTime;
+    @Setter private volatile UUID combatOpponent;
+
+    // Cached result of the tag bypass permission, re-checked every few seconds
+    @Setter private volatile boolean tagBypass;
+    @Setter private volatile long tagBypassCheckTime;
+
+    // Last player that damaged this player
+    @Setter private volatile UUID lastDamageSource;
+    @Setter private volatile long lastDamageTime;
+
+    // Location a riptide was started from, used to roll it back
+    @Setter private volatile Location riptideOrigin;
+
+    // Bit i is set while the move dispatcher feeds this player's moves to its consumer i
+    @Setter private volatile int trackedConsumers;
+
+    // Last time each message key was sent, used to throttle repeated messages
+    private final Map<String, Long> messageTimes = new ConcurrentHashMap<>(8);
+
+    // Newbie protection countdown
+    @Setter private volatile BossBar protectionBossBar;
+
+    // Barrier state, shared by every protection provider
+    @Setter private volatile BarrierSet barriers;
+    private final BarrierPacer.State barrierPace = new BarrierPacer.State();
+    @Setter private volatile long barrierMessageTime;
+
+    // Safezone (WorldGuard) state
+    @Setter private volatile SafezoneIndex.BorderLease safezoneBorderLease;
+    @Setter private volatile long safezoneMessageTime;
+    @Setter private volatile Location pearlThrowLocation;
+    // The last pearl thrown in combat that is still in flight, so quitting drops it without a scan
+    @Setter private volatile UUID pearlProjectileId;
+    @Setter private volatile long pearlThrowTime;
+    // Set once WorldGuard gave this player's session our handler, entry is checked on move until then
+    @Setter private volatile boolean safezoneHandlerAttached;
+
+    // Claim (GriefPrevention) state
+    private final ClaimTrustCache.Table claimTrust = new ClaimTrustCache.Table();
+
+    PlayerSession(Player player, int index) {
+        this.uuid = player.getUniqueId();
+        this.player = player;
+        this.index = index;
+    }
+}
@@ -0,0 +1,117 @@
+package dev.nighter.celestCombat.session;
+
+import dev.nighter.celestCombat.CelestCombat;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates a {@link PlayerSession} when a player joins and drops it when they quit.
+ *
+ * The join handler runs first and the quit handler runs last, so every other
+ * listener can rely on the session being present for the whole connection.
+ */
+public class SessionManager implements Listener {
+    private final CelestCombat plugin;
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+    // Index allocation for dense per-player tables
+    private int[] freeIndices = new int[16];
+    private int freeCount;
+    private int nextIndex;
+
+    public SessionManager(CelestCombat plugin) {
+        this.plugin = plugin;
+
+        // Players that are already online when the plugin is (re)loaded
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            createSession(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        createSession(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        removeSession(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Gets the session of a player, creating it if the player is online but has none yet
+     *
+     * @param player The player
+     * @return The session, or null if the player is offline and has no session
+     */
+    public PlayerSession getSession(Player player) {
+        if (player == null) {
+            return null;
+        }
+
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session != null || !player.isOnline()) {
+            return session;
+        }
+
+        return createSession(player);
+    }
+
+    public PlayerSession getSession(UUID playerUUID) {
+        return sessions.get(playerUUID);
+    }
+
+    public Collection<PlayerSession> getSessions() {
+        return sessions.values();
+    }
+
+    private PlayerSession createSession(Player player) {
+        return sessions.compute(player.getUniqueId(), (uuid, existing) -> {
+            // A player object is replaced on every login, so never keep a stale one
+            if (existing != null && existing.getPlayer() == player) {
+                return existing;
+            }
+            if (existing != null) {
+                releaseIndex(existing.getIndex());
+            }
+            return new PlayerSession(player, acquireIndex());
+        });
+    }
+
+    private void removeSession(UUID playerUUID) {
+        PlayerSession session = sessions.remove(playerUUID);
+        if (session != null) {
+            releaseIndex(session.getIndex());
+            plugin.debug("Dropped session of " + session.getPlayer().getName());
+        }
+    }
+
+    private synchronized int acquireIndex() {
+        if (freeCount > 0) {
+            return freeIndices[--freeCount];
+        }
+        return nextIndex++;
+    }
+
+    private synchronized void releaseIndex(int index) {
+        if (freeCount == freeIndices.length) {
+            freeIndices = Arrays.copyOf(freeIndices, freeCount * 2);
+        }
+        freeIndices[freeCount++] = index;
+    }
+
+    public void shutdown() {
+        sessions.clear();
+    }
+}
@@ -0,0 +1,149 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegionTreeTest {
+    // Enough regions for three levels of nodes above the leaves
+    private static final int GRID = 12;
+    private static final int SPACING = 20;
+    private static final int SIZE = 10;
+
+    @Test
+    void emptyTreeFindsNothing() {
+        RegionTree tree = new RegionTree(List.of());
+
+        assertEquals(0, tree.size());
+        assertNull(tree.find(0, 0, 0));
+        assertEquals(0, tree.query(-100, -100, 100, 100).length);
+    }
+
+    @Test
+    void singleRegion() {
+        SafezoneRegion region = SafezoneRegionTest.cuboid(List.of(0, 0, 0), List.of(5, 5, 5));
+        RegionTree tree = new RegionTree(List.of(region));
+
+        assertSame(region, tree.find(5, 5, 5));
+        assertNull(tree.find(6, 5, 5));
+        assertNull(tree.find(5, 6, 5));
+    }
+
+    @Test
+    void findMatchesEveryRegionOfALargeTree() {
+        List<SafezoneRegion> regions = grid();
+        RegionTree tree = new RegionTree(regions);
+        assertTrue(tree.size() > 64);
+
+        for (SafezoneRegion region : regions) {
+            assertSame(region, tree.find(region.getMinX(), 0, region.getMinZ()));
+            assertSame(region, tree.find(region.getMaxX(), SIZE, region.getMaxZ()));
+        }
+
+        // Every block of the area, including the gaps, the edges and heights outside of the regions
+        for (int x = -SPACING; x < GRID * SPACING; x++) {
+            for (int z = -SPACING; z < GRID * SPACING; z += 3) {
+                for (int y : new int[]{-1, 0, SIZE, SIZE + 1}) {
+                    assertSame(bruteForceFind(regions, x, y, z), tree.find(x, y, z), "at " + x + ", " + y + ", " + z);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findChecksTheOutlineInsideTheBounds() {
+        List<SafezoneRegion> regions = new ArrayList<>(grid());
+        SafezoneRegion circle = SafezoneRegionTest.cylinder(-20, -20, 10, 0, 10);
+        regions.add(circle);
+        RegionTree tree = new RegionTree(regions);
+
+        assertSame(circle, tree.find(-10, 0, -20));
+        assertSame(circle, tree.find(-20, 10, -11));
+        // Inside the bounding box, outside of the circle
+        assertNull(tree.find(-11, 0, -11));
+        assertNull(tree.find(-20, 11, -20));
+    }
+
+    @Test
+    void queryReturnsEveryOverlappingRegion() {
+        List<SafezoneRegion> regions = grid();
+        RegionTree tree = new RegionTree(regions);
+
+        int[][] areas = {
+                {0, 0, 0, 0},
+                {5, 5, 45, 25},
+                {SIZE + 1, SIZE + 1, SPACING - 1, SPACING - 1},
+                {-100, -100, 1000, 1000},
+                {100, 37, 181, 38},
+        };
+        for (int[] area : areas) {
+            List<SafezoneRegion> expected = new ArrayList<>();
+            for (SafezoneRegion region : regions) {
+                if (region.getMinX() <= area[2] && region.getMaxX() >= area[0]
+                        && region.getMinZ() <= area[3] && region.getMaxZ() >= area[1]) {
+                    expected.add(region);
+                }
+            }
+
+            SafezoneRegion[] found = tree.query(area[0], area[1], area[2], area[3]);
+            assertEquals(expected.size(), found.length);
+            assertTrue(Set.of(found).containsAll(expected));
+        }
+    }
+
+    @Test
+    void findAllocatesNothing() {
+        RegionTree tree = new RegionTree(grid());
+
+        // Lets the JIT compile the lookup loop itself, so the measured call runs compiled code
+        int hits = 0;
+        for (int i = 0; i < 20; i++) {
+            hits += findAll(tree, 10_000);
+        }
+        assertTrue(hits > 0);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        threads.getThreadAllocatedBytes(threadId);
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        findAll(tree, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0L, allocated, "find allocated " + allocated + " bytes");
+    }
+
+    private static int findAll(RegionTree tree, int count) {
+        int hits = 0;
+        for (int i = 0; i < count; i++) {
+            if (tree.find(i % (GRID * SPACING), 5, (i * 7) % (GRID * SPACING)) != null) hits++;
+        }
+        return hits;
+    }
+
+    private static List<SafezoneRegion> grid() {
+        List<SafezoneRegion> regions = new ArrayList<>();
+        for (int i = 0; i < GRID; i++) {
+            for (int j = 0; j < GRID; j++) {
+                int x = i * SPACING, z = j * SPACING;
+                regions.add(SafezoneRegionTest.cuboid(List.of(x, 0, z), List.of(x + SIZE - 1, SIZE, z + SIZE - 1)));
+            }
+        }
+        return regions;
+    }
+
+    private static SafezoneRegion bruteForceFind(List<SafezoneRegion> regions, int x, int y, int z) {
+        for (SafezoneRegion region : regions) {
+            if (region.contains(x, y, z)) return region;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+package dev.nighter.celestCombat.hooks.protection;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SafezoneRegionTest {
+
+    @Test
+    void cuboidIncludesBothCorners() {
+        SafezoneRegion region = cuboid(List.of(10, 0, -5), List.of(-10, 64, 5));
+
+        assertTrue(region.contains(-10, 0, -5));
+        assertTrue(region.contains(10, 64, 5));
+        assertFalse(region.contains(11, 32, 0));
+        assertFalse(region.contains(0, 32, 6));
+        assertFalse(region.contains(0, 65, 0));
+        assertFalse(region.contains(0, -1, 0));
+    }
+
+    @Test
+    void cylinderEdgeIsInside() {
+        SafezoneRegion region = cylinder(0, 0, 5, null, null);
+
+        assertTrue(region.contains(5, 0, 0));
+        assertTrue(region.contains(-5, 0, 0));
+        assertTrue(region.contains(3, 0, 4));
+        assertTrue(region.contains(-4, 0, -3));
+        assertFalse(region.contains(4, 0, 4));
+        assertFalse(region.contains(6, 0, 0));
+        assertFalse(region.contains(0, 0, -6));
+    }
+
+    @Test
+    void polygonEdgesAreInside() {
+        SafezoneRegion square = polygon(List.of(List.of(0, 0), List.of(10, 0), List.of(10, 10), List.of(0, 10)), null, null);
+        assertTrue(square.contains(0, 0, 0));
+        assertTrue(square.contains(10, 0, 10));
+        assertTrue(square.contains(5, 0, 10));
+        assertTrue(square.contains(10, 0, 5));
+        assertFalse(square.contains(11, 0, 5));
+        assertFalse(square.contains(5, 0, -1));
+
+        SafezoneRegion triangle = polygon(List.of(List.of(0, 0), List.of(10, 0), List.of(0, 10)), null, null);
+        assertTrue(triangle.contains(5, 0, 5));
+        assertTrue(triangle.contains(4, 0, 5));
+        assertFalse(triangle.contains(6, 0, 5));
+        assertFalse(triangle.contains(10, 0, 10));
+    }
+
+    @Test
+    void heightLimitsAreInclusive() {
+        SafezoneRegion cylinder = cylinder(0, 0, 5, 50, 60);
+        assertTrue(cylinder.contains(0, 50, 0));
+        assertTrue(cylinder.contains(0, 60, 0));
+        assertFalse(cylinder.contains(0, 49, 0));
+        assertFalse(cylinder.contains(0, 61, 0));
+
+        SafezoneRegion polygon = polygon(List.of(List.of(0, 0), List.of(10, 0), List.of(10, 10)), 50, null);
+        assertTrue(polygon.contains(9, 50, 1));
+        assertTrue(polygon.contains(9, Integer.MAX_VALUE, 1));
+        assertFalse(polygon.contains(9, 49, 1));
+    }
+
+    @Test
+    void withoutHeightLimitsReachesThroughTheWorld() {
+        SafezoneRegion region = cylinder(0, 0, 5, null, null);
+
+        assertTrue(region.contains(0, -64, 0));
+        assertTrue(region.contains(0, 320, 0));
+        assertTrue(region.contains(0, Integer.MIN_VALUE, 0));
+    }
+
+    @Test
+    void invalidSectionsAreRejected() {
+        YamlConfiguration unknown = new YamlConfiguration();
+        unknown.set("shape", "sphere");
+        assertThrows(IllegalArgumentException.class, () -> SafezoneRegion.load("unknown", unknown));
+
+        YamlConfiguration line = new YamlConfiguration();
+        line.set("shape", "polygon");
+        line.set("points", List.of(List.of(0, 0), List.of(10, 0)));
+        assertThrows(IllegalArgumentException.class, () -> SafezoneRegion.load("line", line));
+
+        YamlConfiguration noRadius = new YamlConfiguration();
+        noRadius.set("shape", "cylinder");
+        noRadius.set("center", List.of(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> SafezoneRegion.load("noRadius", noRadius));
+
+        YamlConfiguration shortCorner = new YamlConfiguration();
+        shortCorner.set("min", List.of(0, 0));
+        shortCorner.set("max", List.of(10, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> SafezoneRegion.load("shortCorner", shortCorner));
+    }
+
+    @Test
+    void outlineCoversEveryEdgeColumn() {
+        assertOutlineComplete(cuboid(List.of(-7, 0, -3), List.of(12, 10, 20)));
+        assertOutlineComplete(cylinder(3, -2, 9, null, null));
+        assertOutlineComplete(cylinder(0, 0, 6.5, null, null));
+        assertOutlineComplete(cylinder(0, 0, 0, null, null));
+        assertOutlineComplete(polygon(List.of(List.of(-10, 0), List.of(5, 2), List.of(8, 17), List.of(-6, 11)), null, null));
+        assertOutlineComplete(polygon(List.of(List.of(0, 0), List.of(20, 3), List.of(2, 5), List.of(18, 19)), null, null));
+    }
+
+    /**
+     * Every column with a horizontal neighbour outside of the region has to be emitted,
+     * checked for the whole region and for a window cutting through it
+     */
+    private static void assertOutlineComplete(SafezoneRegion region) {
+        assertOutlineComplete(region, region.getMinX() - 2, region.getMinZ() - 2, region.getMaxX() + 2, region.getMaxZ() + 2);
+
+        int midX = (region.getMinX() + region.getMaxX()) / 2;
+        int midZ = (region.getMinZ() + region.getMaxZ()) / 2;
+        assertOutlineComplete(region, midX - 3, midZ - 4, midX + 5, midZ + 2);
+    }
+
+    private static void assertOutlineComplete(SafezoneRegion region, int minX, int minZ, int maxX, int maxZ) {
+        Set<Long> emitted = new HashSet<>();
+        region.addOutline(minX, minZ, maxX, maxZ, (x, z) -> emitted.add(column(x, z)));
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                if (!region.contains(x, 0, z)) continue;
+
+                boolean edge = !region.contains(x + 1, 0, z) || !region.contains(x - 1, 0, z)
+                        || !region.contains(x, 0, z + 1) || !region.contains(x, 0, z - 1);
+                if (edge) {
+                    assertTrue(emitted.contains(column(x, z)),
+                            region.getName() + " did not emit edge column " + x + ", " + z);
+                }
+            }
+        }
+    }
+
+    private static long column(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    static SafezoneRegion cuboid(List<Integer> min, List<Integer> max) {
+        YamlConfiguration section = new YamlConfiguration();
+        section.set("shape", "cuboid");
+        section.set("min", min);
+        section.set("max", max);
+        return SafezoneRegion.load("cuboid", section);
+    }
+
+    static SafezoneRegion cylinder(int centerX, int centerZ, double radius, Integer minY, Integer maxY) {
+        YamlConfiguration section = new YamlConfiguration();
+        section.set("shape", "cylinder");
+        section.set("center", List.of(centerX, centerZ));
+        section.set("radius", radius);
+        section.set("min_y", minY);
+        section.set("max_y", maxY);
+        return SafezoneRegion.load("cylinder", section);
+    }
+
+    private static SafezoneRegion polygon(List<List<Integer>> points, Integer minY, Integer maxY) {
+        YamlConfiguration section = new YamlConfiguration();
+        section.set("shape", "polygon");
+        section.set("points", points);
+        section.set("min_y", minY);
+        section.set("max_y", maxY);
+        return SafezoneRegion.load("polygon", section);
+    }
+}
@@ -0,0 +1,170 @@
+package dev.nighter.celestCombat.listeners;
+
+import dev.nighter.celestCombat.CelestCombat;
+import dev.nighter.celestCombat.Scheduler;
+import dev.nighter.celestCombat.combat.CombatManager;
+import dev.nighter.celestCombat.configs.CelestConfig;
+import dev.nighter.celestCombat.configs.WorldPolicyTable;
+import dev.nighter.celestCombat.protection.NewbieProtectionManager;
+import dev.nighter.celestCombat.session.PlayerSession;
+import dev.nighter.celestCombat.session.SessionManager;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+/**
+ * Guards the PvP hit path: once both players are tagged, a hit going through the real
+ * damage handler must not allocate.
+ *
+ * Players and worlds are plain proxies instead of mocks, a mock records every call it
+ * receives and would allocate on its own.
+ */
+class CombatListenersAllocationTest {
+    private static final int WARMUP_HITS = 200_000;
+    private static final int MEASURED_HITS = 100_000;
+    private static final int WARMUP_ROUNDS = 20;
+
+    @TempDir
+    File dataFolder;
+
+    @Test
+    void hitBetweenTaggedPlayersAllocatesNothing() {
+        World world = stub(World.class, Map.of(
+                "getUID", UUID.randomUUID(),
+                "getName", "world"));
+        Player attacker = player("attacker", world);
+        Player victim = player("victim", world);
+
+        CelestCombat plugin = mock(CelestCombat.class);
+        when(plugin.getConfig()).thenReturn(new YamlConfiguration());
+        when(plugin.getTimeFromConfig(anyString(), anyString())).thenReturn(400L);
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getCelestConfig()).thenReturn(mock(CelestConfig.class));
+        when(plugin.getServer()).thenReturn(mock(Server.class));
+
+        try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class);
+             MockedStatic<Scheduler> scheduler = mockStatic(Scheduler.class)) {
+            bukkit.when(Bukkit::getWorlds).thenReturn(List.of(world));
+
+            SessionManager sessionManager = new SessionManager(plugin);
+            WorldPolicyTable worldPolicies = new WorldPolicyTable(plugin);
+            when(plugin.getSessionManager()).thenReturn(sessionManager);
+            when(plugin.getWorldPolicyTable()).thenReturn(worldPolicies);
+            CombatManager combatManager = new CombatManager(plugin);
+            when(plugin.getCombatManager()).thenReturn(combatManager);
+            NewbieProtectionManager newbieProtectionManager = new NewbieProtectionManager(plugin);
+            when(plugin.getNewbieProtectionManager()).thenReturn(newbieProtectionManager);
+            CombatListeners listeners = new CombatListeners(plugin);
+
+            // Tags both players and lets the JIT compile the hit loop itself
+            HitEvent event = new HitEvent();
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                hits(listeners, attacker, victim, event, WARMUP_HITS / WARMUP_ROUNDS);
+            }
+
+            PlayerSession attackerSession = sessionManager.getSession(attacker);
+            PlayerSession victimSession = sessionManager.getSession(victim);
+            assertFalse(event.isCancelled());
+            assertNotEquals(0L, attackerSession.getCombatEndTime());
+            assertEquals(victimSession.getUuid(), attackerSession.getCombatOpponent());
+            assertEquals(attackerSession.getUuid(), victimSession.getCombatOpponent());
+
+            // The bypass permission is rechecked every few seconds, which is allowed to allocate
+            long now = System.currentTimeMillis();
+            attackerSession.setTagBypassCheckTime(now);
+            victimSession.setTagBypassCheckTime(now);
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().threadId();
+            threads.getThreadAllocatedBytes(threadId);
+
+            long before = threads.getThreadAllocatedBytes(threadId);
+            hits(listeners, attacker, victim, event, MEASURED_HITS);
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+            assertFalse(event.isCancelled());
+            assertEquals(0L, allocated, "hit path allocated " + allocated + " bytes over " + MEASURED_HITS + " hits");
+        }
+    }
+
+    // Warmup and measurement share this loop, so the measured call runs compiled code
+    private static void hits(CombatListeners listeners, Player attacker, Player victim, HitEvent event, int count) {
+        for (int i = 0; i < count; i++) {
+            listeners.handlePlayerDamage(victim, attacker, event);
+        }
+    }
+
+    private static final class HitEvent implements Cancellable {
+        private boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void setCancelled(boolean cancel) {
+            this.cancelled = cancel;
+        }
+    }
+
+    private static Player player(String name, World world) {
+        return stub(Player.class, Map.of(
+                "getUniqueId", UUID.randomUUID(),
+                "getName", name,
+                "getWorld", world,
+                "isOnline", true,
+                "isFlying", false,
+                "hasPermission", false));
+    }
+
+    /**
+     * A proxy answering the given methods by name with fixed values, and everything else with a default
+     */
+    private static <T> T stub(Class<T> type, Map<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    break;
+            }
+
+            Object answer = answers.get(method.getName());
+            if (answer != null) return answer;
+
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) return false;
+            if (returnType == void.class || !returnType.isPrimitive()) return null;
+            if (returnType == long.class) return 0L;
+            if (returnType == double.class) return 0.0;
+            if (returnType == float.class) return 0.0f;
+            return 0;
+        }));
+    }
+}